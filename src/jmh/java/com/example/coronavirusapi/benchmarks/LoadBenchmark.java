@@ -0,0 +1,69 @@
+package com.example.coronavirusapi.benchmarks;
+
+import com.example.coronavirusapi.Dataset;
+import com.example.coronavirusapi.TimeSeriesLoader;
+import com.example.coronavirusapi.store.TimeSeriesStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading the time series files of every dataset: cold, by parsing the
+ * CSV files, and warm, by reading the compiled snapshot files of an
+ * earlier load.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class LoadBenchmark {
+    @Param({"1", "10", "100"})
+    public int regionScale;
+
+    @Param({"1", "10"})
+    public int dayScale;
+
+    private Path dir;
+    private TimeSeriesLoader coldLoader;
+    private TimeSeriesLoader warmLoader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("coronavirus-bench");
+        String location = SyntheticData.location(dir.resolve("data"), regionScale, dayScale);
+        DefaultResourceLoader resourceLoader = new DefaultResourceLoader();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        coldLoader = new TimeSeriesLoader(resourceLoader, location, null, registry);
+        warmLoader = new TimeSeriesLoader(resourceLoader, location, dir.resolve("snapshots"),
+                registry);
+        // Compile the snapshot files
+        warmLoader.load();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticData.delete(dir);
+    }
+
+    @Benchmark
+    public TimeSeriesStore cold() {
+        return legacy(coldLoader.load());
+    }
+
+    @Benchmark
+    public TimeSeriesStore warm() {
+        return legacy(warmLoader.load());
+    }
+
+    private static TimeSeriesStore legacy(Map<Dataset, TimeSeriesStore> stores) {
+        return stores.get(Dataset.LEGACY);
+    }
+}
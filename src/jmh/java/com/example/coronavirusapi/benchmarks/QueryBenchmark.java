@@ -0,0 +1,67 @@
+package com.example.coronavirusapi.benchmarks;
+
+import com.example.coronavirusapi.CaseType;
+import com.example.coronavirusapi.store.QueryEngine;
+import com.example.coronavirusapi.store.QueryResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link QueryEngine#query} for a single point, a whole country and the
+ * unfiltered data, per case type. Each result is walked cell by cell,
+ * as serializing it would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class QueryBenchmark {
+    /**
+     * Case type to query; "all" queries every case type.
+     */
+    @Param({"all", "confirmed", "deaths", "recovered"})
+    public String caseType;
+
+    private CaseType type;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        type = caseType.equals("all") ? null : CaseType.fromKey(caseType);
+    }
+
+    @Benchmark
+    public long point(ScaledData data) {
+        int day = data.lastDay();
+        return sum(data.engine.query(day, day, "US", "Washington", type, false));
+    }
+
+    @Benchmark
+    public long country(ScaledData data) {
+        return sum(data.engine.query(Integer.MIN_VALUE, Integer.MAX_VALUE,
+                "US", QueryEngine.ANY, type, false));
+    }
+
+    @Benchmark
+    public long unfiltered(ScaledData data) {
+        return sum(data.engine.query(Integer.MIN_VALUE, Integer.MAX_VALUE,
+                QueryEngine.ANY, QueryEngine.ANY, type, false));
+    }
+
+    private static long sum(QueryResult result) {
+        long sum = 0;
+        for (int series : result.series()) {
+            for (CaseType t : result.caseTypes()) {
+                if (!result.store().has(series, t)) {
+                    continue;
+                }
+                for (int d = result.fromDayIndex(); d < result.toDayIndex(); d++) {
+                    sum += result.value(series, t, d);
+                }
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.coronavirusapi.benchmarks;
+
+import com.example.coronavirusapi.Dataset;
+import com.example.coronavirusapi.TimeSeriesLoader;
+import com.example.coronavirusapi.store.QueryEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The data scaled by {@link SyntheticData}, with its legacy dataset
+ * loaded into a {@link QueryEngine}. Shared by the query and
+ * serialization benchmarks.
+ */
+@State(Scope.Benchmark)
+public class ScaledData {
+    @Param({"1", "10", "100"})
+    public int regionScale;
+
+    @Param({"1", "10"})
+    public int dayScale;
+
+    QueryEngine engine;
+    private Path dir;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        dir = Files.createTempDirectory("coronavirus-bench");
+        String location = SyntheticData.location(dir, regionScale, dayScale);
+        TimeSeriesLoader loader = new TimeSeriesLoader(new DefaultResourceLoader(),
+                location, null, new SimpleMeterRegistry());
+        engine = new QueryEngine(loader.load().get(Dataset.LEGACY));
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        SyntheticData.delete(dir);
+    }
+
+    /**
+     * Returns the epoch day of the last day in the store.
+     */
+    int lastDay() {
+        return engine.store().day(engine.store().dayCount() - 1);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.coronavirusapi.benchmarks;
+
+import com.example.coronavirusapi.QueryResultHttpMessageConverter;
+import com.example.coronavirusapi.store.QueryEngine;
+import com.example.coronavirusapi.store.QueryResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering controller results to JSON with
+ * {@link QueryResultHttpMessageConverter}, for a single country and for
+ * the unfiltered data. Output is counted and discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SerializationBenchmark {
+    @Param({"false", "true"})
+    public boolean pretty;
+
+    private QueryResultHttpMessageConverter converter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        converter = new QueryResultHttpMessageConverter(
+                new ObjectMapper().getFactory(), new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public long country(ScaledData data) throws IOException {
+        return write(data.engine.query(Integer.MIN_VALUE, Integer.MAX_VALUE,
+                "US", QueryEngine.ANY, null, false));
+    }
+
+    @Benchmark
+    public long unfiltered(ScaledData data) throws IOException {
+        return write(data.engine.query(Integer.MIN_VALUE, Integer.MAX_VALUE,
+                QueryEngine.ANY, QueryEngine.ANY, null, false));
+    }
+
+    private long write(QueryResult result) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        converter.write(result.prettyPrinted(pretty), out);
+        return out.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
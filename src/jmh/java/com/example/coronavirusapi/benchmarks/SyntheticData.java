@@ -0,0 +1,129 @@
+package com.example.coronavirusapi.benchmarks;
+
+import com.example.coronavirusapi.CaseType;
+import com.example.coronavirusapi.Dataset;
+import com.example.coronavirusapi.TimeSeriesLoader;
+import com.example.coronavirusapi.store.TimeSeriesCsvParser;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Generates copies of the bundled time series files of every
+ * {@link Dataset} scaled up in regions and days, laid out as a data
+ * directory that {@link TimeSeriesLoader} can load.
+ *
+ * Regions are scaled by repeating every row under renamed countries
+ * ("Italy", "Italy 2", ...), days by continuing each row's last daily
+ * increase past the last bundled date. The 1x1 scale is generated the
+ * same way, so every scale loads the same set of files.
+ */
+final class SyntheticData {
+    private static final DateTimeFormatter CSV_DATE_FORMAT = DateTimeFormatter.ofPattern("M/d/yy");
+
+    private SyntheticData() {
+    }
+
+    /**
+     * Returns the resource location of a data directory scaled by
+     * {@code regionScale} and {@code dayScale}, generating it under
+     * {@code dir}.
+     */
+    static String location(Path dir, int regionScale, int dayScale) throws IOException {
+        Path timeSeries = dir.resolve(TimeSeriesLoader.TIME_SERIES_DIR);
+        Files.createDirectories(timeSeries);
+        for (Dataset dataset : Dataset.values()) {
+            for (CaseType caseType : dataset.caseTypes()) {
+                String name = dataset.fileName(caseType);
+                write(bundled(name), timeSeries.resolve(name), regionScale, dayScale);
+            }
+        }
+        return dir.toUri().toString();
+    }
+
+    /**
+     * Deletes {@code dir} and everything below it.
+     */
+    static void delete(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private static TimeSeriesCsvParser.ParsedFile bundled(String name) throws IOException {
+        String path = "/csse_covid_19_data/" + TimeSeriesLoader.TIME_SERIES_DIR + name;
+        try (InputStream in = SyntheticData.class.getResourceAsStream(path)) {
+            if (in == null) {
+                throw new IOException("Missing bundled file " + path);
+            }
+            return TimeSeriesCsvParser.parse(in);
+        }
+    }
+
+    private static void write(TimeSeriesCsvParser.ParsedFile template, Path path,
+                              int regionScale, int dayScale) throws IOException {
+        int[] days = template.days();
+        int dayCount = days.length * dayScale;
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write("Province/State,Country/Region,Lat,Long");
+            for (int d = 0; d < dayCount; d++) {
+                out.write(',');
+                out.write(LocalDate.ofEpochDay(days[0] + d).format(CSV_DATE_FORMAT));
+            }
+            out.write('\n');
+
+            for (int copy = 1; copy <= regionScale; copy++) {
+                for (int row = 0; row < template.rowCount(); row++) {
+                    String country = template.country(row) + ((copy == 1) ? "" : " " + copy);
+                    out.write(quote(template.state(row)));
+                    out.write(',');
+                    out.write(quote(country));
+                    out.write(',');
+                    out.write(coordinate(template.latitude(row)));
+                    out.write(',');
+                    out.write(coordinate(template.longitude(row)));
+
+                    int[] values = template.values(row);
+                    int last = values[values.length - 1];
+                    int step = (values.length < 2) ? 0 : Math.max(0, last - values[values.length - 2]);
+                    for (int d = 0; d < dayCount; d++) {
+                        int value = (d < values.length)
+                                ? values[d]
+                                : last + step * (d - values.length + 1);
+                        out.write(',');
+                        out.write(Integer.toString(value));
+                    }
+                    out.write('\n');
+                }
+            }
+        }
+    }
+
+    private static String coordinate(double value) {
+        return Double.isNaN(value) ? "" : Double.toString(value);
+    }
+
+    private static String quote(String field) {
+        return (field.indexOf(',') < 0 && field.indexOf('"') < 0)
+                ? field
+                : '"' + field.replace("\"", "\"\"") + '"';
+    }
+}
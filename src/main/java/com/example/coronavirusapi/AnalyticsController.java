@@ -0,0 +1,149 @@
+package com.example.coronavirusapi;
+
+import com.example.coronavirusapi.custom_exceptions.InvalidCaseTypeException;
+import com.example.coronavirusapi.custom_exceptions.InvalidParameterRangeException;
+import com.example.coronavirusapi.store.Analytics;
+import com.example.coronavirusapi.store.QueryEngine;
+import com.example.coronavirusapi.store.TimeSeriesStore;
+import com.example.coronavirusapi.store.TrendResult;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Endpoints for measures derived from the time series: rankings of
+ * regions, and per-day growth rates, doubling times and moving averages.
+ *
+ * Everything is computed on request from the cumulative columns of the
+ * current snapshot; see {@link Analytics}. Unchanged results are
+ * answered with 304 Not Modified; see {@link DataSnapshot#eTag}.
+ */
+@RestController
+public class AnalyticsController {
+    private final DataReloader data;
+
+    // Largest number of regions a ranking may return
+    private static final int MAX_TOP = 100;
+
+    // Largest window, in days, of windowed measures
+    private static final int MAX_WINDOW = 365;
+
+    public AnalyticsController(DataReloader data) {
+        this.data = data;
+    }
+
+    /**
+     * Ranks countries, or the states of {@code country}, by {@code metric}
+     * on {@code date} (or the latest day), and returns the top {@code n}
+     * as a [{"country": c, "state": s, "value": v}] array.
+     */
+    @GetMapping("/api/analytics/top")
+    public ResponseEntity<?> top(
+            @RequestParam(value = "caseType", defaultValue = "confirmed") String caseType,
+            @RequestParam(value = "metric", defaultValue = "total") String metric,
+            @RequestParam(value = "date", defaultValue = QueryEngine.ANY) String date,
+            @RequestParam(value = "country", defaultValue = QueryEngine.ANY) String country,
+            @RequestParam(value = "n", defaultValue = "10") int n,
+            @RequestParam(value = "window", defaultValue = "" + Analytics.DEFAULT_WINDOW) int window,
+            @RequestParam(value = "dataset", defaultValue = "legacy") String dataset,
+            WebRequest request) {
+        int[] range = CoronavirusApiController.checkInputValid(
+                date, QueryEngine.ANY, QueryEngine.ANY, country, QueryEngine.ANY);
+        CaseType type = parseCaseType(caseType);
+        Metric rankBy = Metric.fromKey(metric);
+        checkRange("n", n, MAX_TOP);
+        checkRange("window", window, MAX_WINDOW);
+        Dataset set = Dataset.fromKey(dataset);
+
+        DataSnapshot snapshot = data.current();
+        String eTag = snapshot.eTag("top", set.key(), type.key(), rankBy.key(),
+                Integer.toString(range[1]), country.toLowerCase(Locale.ROOT),
+                Integer.toString(n), Integer.toString(window));
+        if (request.checkNotModified(eTag, snapshot.loadedAt())) {
+            return null;
+        }
+
+        QueryEngine engine = snapshot.timeSeries(set);
+        TimeSeriesStore store = engine.store();
+        int[] ranked = engine.top(country, range[1], type, rankBy, window, n);
+        int dayIndex = store.upperDayIndex(range[1]) - 1;
+
+        List<Map<String, Object>> body = new ArrayList<>(ranked.length);
+        for (int series : ranked) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("country", store.country(series));
+            entry.put("state", store.state(series));
+            entry.put("value", rankBy.score(store, series, type, dayIndex, window));
+            body.add(entry);
+        }
+        return ok(eTag, snapshot).body(body);
+    }
+
+    /**
+     * Returns new cases, the moving average of new cases, the growth rate
+     * and the doubling time of every matching region on every matching day.
+     */
+    @GetMapping("/api/analytics/trends")
+    public ResponseEntity<?> trends(
+            @RequestParam(value = "caseType", defaultValue = "confirmed") String caseType,
+            @RequestParam(value = "date", defaultValue = QueryEngine.ANY) String date,
+            @RequestParam(value = "from", defaultValue = QueryEngine.ANY) String from,
+            @RequestParam(value = "to", defaultValue = QueryEngine.ANY) String to,
+            @RequestParam(value = "country", defaultValue = QueryEngine.ANY) String country,
+            @RequestParam(value = "state", defaultValue = QueryEngine.ANY) String state,
+            @RequestParam(value = "window", defaultValue = "" + Analytics.DEFAULT_WINDOW) int window,
+            @RequestParam(value = "pretty", defaultValue = "false") boolean pretty,
+            @RequestParam(value = "dataset", defaultValue = "legacy") String dataset,
+            WebRequest request) {
+        int[] range = CoronavirusApiController.checkInputValid(date, from, to, country, state);
+        CaseType type = parseCaseType(caseType);
+        checkRange("window", window, MAX_WINDOW);
+        Dataset set = Dataset.fromKey(dataset);
+
+        DataSnapshot snapshot = data.current();
+        String eTag = snapshot.eTag("trends", set.key(), type.key(),
+                Integer.toString(range[0]), Integer.toString(range[1]),
+                country.toLowerCase(Locale.ROOT), state.toLowerCase(Locale.ROOT),
+                Integer.toString(window), Boolean.toString(pretty));
+        if (request.checkNotModified(eTag, snapshot.loadedAt())) {
+            return null;
+        }
+
+        TrendResult result = snapshot.timeSeries(set)
+                .trends(range[0], range[1], country, state, type, window)
+                .prettyPrinted(pretty);
+        return ok(eTag, snapshot).body(result);
+    }
+
+    /**
+     * Helper method to parse a case type; measures are computed for one
+     * case type, so an empty one means confirmed cases.
+     * @throws InvalidCaseTypeException if {@code caseType} is unknown
+     */
+    private static CaseType parseCaseType(String caseType) {
+        CaseType type = CaseType.fromKey(caseType);
+        return (type == null) ? CaseType.CONFIRMED : type;
+    }
+
+    private static void checkRange(String name, int value, int max) {
+        if (value < 1 || value > max) {
+            throw new InvalidParameterRangeException(name, 1, max);
+        }
+    }
+
+    private static ResponseEntity.BodyBuilder ok(String eTag, DataSnapshot snapshot) {
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .lastModified(snapshot.loadedAt())
+                .contentType(MediaType.APPLICATION_JSON);
+    }
+}
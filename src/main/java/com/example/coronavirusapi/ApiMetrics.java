@@ -0,0 +1,207 @@
+package com.example.coronavirusapi;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request-path metrics of the API.
+ *
+ * Every meter a request can touch is registered up front and kept in
+ * arrays indexed by endpoint and query shape, so recording costs an
+ * array lookup and the meter update, without building tags or looking
+ * meters up in the registry.
+ *
+ * A query's shape is the combination of its region filter (none, a
+ * country, or a state) and its date filter (none, one day, or a range).
+ */
+@Component
+public class ApiMetrics {
+    // Endpoints, indexed by endpointIndex()
+    private static final String[] ENDPOINTS = {"all", "confirmed", "deaths", "recovered"};
+
+    /**
+     * Region filters of a query shape.
+     */
+    static final int REGION_ANY = 0;
+    static final int REGION_COUNTRY = 1;
+    static final int REGION_STATE = 2;
+    private static final String[] REGIONS = {"any", "country", "state"};
+
+    /**
+     * Date filters of a query shape.
+     */
+    static final int DATES_ANY = 0;
+    static final int DATES_DAY = 1;
+    static final int DATES_RANGE = 2;
+    private static final String[] DATES = {"any", "day", "range"};
+
+    /**
+     * Ways a response is produced.
+     */
+    static final int CACHE_HIT = 0;
+    static final int CACHE_MISS = 1;
+    static final int NOT_MODIFIED = 2;
+    static final int STREAMED = 3;
+    static final int COALESCED = 4;
+    private static final String[] OUTCOMES =
+            {"hit", "miss", "not-modified", "streamed", "coalesced"};
+
+    private final MeterRegistry registry;
+
+    // [endpoint][region][dates]
+    private final Timer[][][] queryTimers;
+    // [endpoint]
+    private final DistributionSummary[] resultSeries;
+    private final DistributionSummary[] resultCells;
+    private final DistributionSummary encodedBytes;
+    private final Counter[] outcomes;
+    private final Timer batchTimer;
+    private final DistributionSummary batchSize;
+
+    public ApiMetrics(MeterRegistry registry, ResponseCache cache) {
+        this.registry = registry;
+
+        queryTimers = new Timer[ENDPOINTS.length][REGIONS.length][DATES.length];
+        resultSeries = new DistributionSummary[ENDPOINTS.length];
+        resultCells = new DistributionSummary[ENDPOINTS.length];
+        for (int e = 0; e < ENDPOINTS.length; e++) {
+            for (int r = 0; r < REGIONS.length; r++) {
+                for (int d = 0; d < DATES.length; d++) {
+                    queryTimers[e][r][d] = Timer.builder("coronavirus.query")
+                            .description("Time to answer a query, excluding streamed serialization")
+                            .tag("endpoint", ENDPOINTS[e])
+                            .tag("region", REGIONS[r])
+                            .tag("dates", DATES[d])
+                            .publishPercentileHistogram()
+                            .minimumExpectedValue(Duration.ofNanos(1000))
+                            .maximumExpectedValue(Duration.ofSeconds(10))
+                            .register(registry);
+                }
+            }
+            resultSeries[e] = DistributionSummary.builder("coronavirus.query.series")
+                    .description("Number of series in a query result")
+                    .tag("endpoint", ENDPOINTS[e])
+                    .register(registry);
+            resultCells[e] = DistributionSummary.builder("coronavirus.query.cells")
+                    .description("Number of values in a query result")
+                    .tag("endpoint", ENDPOINTS[e])
+                    .register(registry);
+        }
+
+        encodedBytes = responseBytes(registry, "encoded");
+
+        outcomes = new Counter[OUTCOMES.length];
+        for (int o = 0; o < OUTCOMES.length; o++) {
+            outcomes[o] = Counter.builder("coronavirus.responses")
+                    .description("Responses by how they were produced")
+                    .tag("outcome", OUTCOMES[o])
+                    .register(registry);
+        }
+
+        batchTimer = Timer.builder("coronavirus.batch")
+                .description("Time to answer a batch request, excluding serialization")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(1000))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(registry);
+        batchSize = DistributionSummary.builder("coronavirus.batch.size")
+                .description("Number of selectors in a batch request")
+                .register(registry);
+
+        Gauge.builder("coronavirus.cache.bytes", cache, ResponseCache::size)
+                .description("Approximate size of the response cache")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * Returns the summary of serialized response sizes for responses
+     * produced the way {@code path} describes: "encoded" for bodies
+     * sent from pre-encoded bytes, or "streamed".
+     */
+    static DistributionSummary responseBytes(MeterRegistry registry, String path) {
+        return DistributionSummary.builder("coronavirus.response.bytes")
+                .description("Size of serialized response bodies")
+                .baseUnit("bytes")
+                .tag("path", path)
+                .register(registry);
+    }
+
+    /**
+     * Returns the region filter of a query for {@code country} and {@code state}.
+     */
+    static int region(String country, String state) {
+        if (!state.isEmpty()) {
+            return REGION_STATE;
+        }
+        return country.isEmpty() ? REGION_ANY : REGION_COUNTRY;
+    }
+
+    /**
+     * Returns the date filter of a query for {@code range},
+     * as returned by the controller's input validation.
+     */
+    static int dates(int[] range) {
+        if (range[0] == range[1]) {
+            return DATES_DAY;
+        }
+        return (range[0] == Integer.MIN_VALUE && range[1] == Integer.MAX_VALUE)
+                ? DATES_ANY
+                : DATES_RANGE;
+    }
+
+    /**
+     * Records a query answered in {@code nanos} nanoseconds.
+     *
+     * @param caseType case type of the endpoint, or null for /api/all
+     */
+    void recordQuery(CaseType caseType, int region, int dates, long nanos) {
+        queryTimers[endpointIndex(caseType)][region][dates].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the size of a query result that was computed.
+     */
+    void recordResult(CaseType caseType, int series, long cells) {
+        int e = endpointIndex(caseType);
+        resultSeries[e].record(series);
+        resultCells[e].record(cells);
+    }
+
+    /**
+     * Records a response sent from pre-encoded bytes.
+     */
+    void recordEncodedBytes(int bytes) {
+        encodedBytes.record(bytes);
+    }
+
+    void recordOutcome(int outcome) {
+        outcomes[outcome].increment();
+    }
+
+    void recordBatch(int size, long nanos) {
+        batchSize.record(size);
+        batchTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts a request rejected with {@code ex}, by exception type.
+     * Only called on the error path, so the counter is looked up
+     * in the registry.
+     */
+    void recordValidationFailure(Exception ex) {
+        registry.counter("coronavirus.validation.failures",
+                "exception", ex.getClass().getSimpleName()).increment();
+    }
+
+    private static int endpointIndex(CaseType caseType) {
+        return (caseType == null) ? 0 : caseType.ordinal() + 1;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.coronavirusapi;
+
+import com.example.coronavirusapi.store.QueryResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Results of a batch request, in request order. Each item is either a
+ * {@link QueryResult} or the message of the error that query caused.
+ */
+public final class BatchResult {
+    private final List<QueryResult> results = new ArrayList<>();
+    private final List<String> errors = new ArrayList<>();
+    private final boolean pretty;
+
+    public BatchResult(boolean pretty) {
+        this.pretty = pretty;
+    }
+
+    public void add(QueryResult result) {
+        results.add(result);
+        errors.add(null);
+    }
+
+    public void addError(String message) {
+        results.add(null);
+        errors.add(message);
+    }
+
+    public int size() {
+        return results.size();
+    }
+
+    /**
+     * Returns the result of item {@code i}, or null if it failed.
+     */
+    public QueryResult result(int i) {
+        return results.get(i);
+    }
+
+    /**
+     * Returns the error message of item {@code i}, or null if it succeeded.
+     */
+    public String error(int i) {
+        return errors.get(i);
+    }
+
+    public boolean isPrettyPrinted() {
+        return pretty;
+    }
+}
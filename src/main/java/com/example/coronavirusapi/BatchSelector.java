@@ -0,0 +1,85 @@
+package com.example.coronavirusapi;
+
+/**
+ * One query of a batch request. Fields mirror the request parameters of
+ * the query endpoints, plus {@code caseType} to choose the endpoint
+ * ("confirmed", "deaths", "recovered", or empty for all).
+ */
+public class BatchSelector {
+    private String date = "";
+    private String from = "";
+    private String to = "";
+    private String country = "";
+    private String state = "";
+    private String caseType = "";
+    private String dataset = Dataset.LEGACY.key();
+    private boolean daily;
+
+    public String getDate() {
+        return date;
+    }
+
+    public void setDate(String date) {
+        this.date = nonNull(date);
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public void setFrom(String from) {
+        this.from = nonNull(from);
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = nonNull(to);
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public void setCountry(String country) {
+        this.country = nonNull(country);
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = nonNull(state);
+    }
+
+    public String getCaseType() {
+        return caseType;
+    }
+
+    public void setCaseType(String caseType) {
+        this.caseType = nonNull(caseType);
+    }
+
+    public String getDataset() {
+        return dataset;
+    }
+
+    public void setDataset(String dataset) {
+        this.dataset = (dataset == null) ? Dataset.LEGACY.key() : dataset;
+    }
+
+    public boolean isDaily() {
+        return daily;
+    }
+
+    public void setDaily(boolean daily) {
+        this.daily = daily;
+    }
+
+    private static String nonNull(String value) {
+        return (value == null) ? "" : value;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.coronavirusapi;
+
+import com.example.coronavirusapi.custom_exceptions.InvalidCaseTypeException;
+
+/**
+ * Enum for classifying a coronavirus case as a
+ * confirmed case, a death or a recovery.
+ */
+public enum CaseType {
+    CONFIRMED, DEATHS, RECOVERED;
+
+    private final String key = name().toLowerCase();
+
+    /**
+     * Returns the lowercase name used for this case type in responses
+     * (i.e. "confirmed", "deaths", "recovered").
+     */
+    public String key() {
+        return key;
+    }
+
+    /**
+     * Returns the case type named {@code key} (ignoring case),
+     * or null if {@code key} is empty.
+     * @throws InvalidCaseTypeException if there is no such case type
+     */
+    public static CaseType fromKey(String key) {
+        if (key.isEmpty()) {
+            return null;
+        }
+        for (CaseType caseType : values()) {
+            if (caseType.key.equalsIgnoreCase(key)) {
+                return caseType;
+            }
+        }
+        throw new InvalidCaseTypeException();
+    }
+}
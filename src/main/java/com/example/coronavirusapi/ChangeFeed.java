@@ -0,0 +1,370 @@
+package com.example.coronavirusapi;
+
+import com.example.coronavirusapi.store.ChangeSet;
+import com.example.coronavirusapi.store.QueryEngine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Versioned feed of the cells that changed between data loads.
+ *
+ * Every reload is diffed against the snapshot it replaces, and the
+ * change sets of the last {@code coronavirus.feed.history} versions are
+ * kept, so a client that last saw version v can fetch only what changed
+ * since. Versions restart at 1 with every run of the server, so clients
+ * see them as {@code <runId>:<version>} IDs (see {@link DataSnapshot#runId}).
+ * Older versions, IDs of an earlier run and IDs that don't parse are
+ * answered with a reset.
+ *
+ * Changes are also pushed to Server-Sent Events subscribers. Each
+ * reload's changes are encoded once per dataset and queued for every
+ * subscriber. The queues are drained by a fixed pool of
+ * {@code coronavirus.feed.sender-threads} threads, one event per turn,
+ * so open connections are held by the servlet container's async
+ * support, not by threads. A client that stalls holds one sender thread
+ * until its write completes or times out while the others keep serving
+ * everyone else, and a subscriber that falls {@code MAX_PENDING} events
+ * behind is dropped.
+ * Events carry the version ID as their ID, so a reconnecting client
+ * (sending Last-Event-ID) first receives what it missed, or a reset if
+ * the server has restarted since.
+ */
+@Component
+public class ChangeFeed {
+    private static final Logger log = LoggerFactory.getLogger(ChangeFeed.class);
+
+    /**
+     * Name of the events sent to subscribers.
+     */
+    static final String EVENT_NAME = "changes";
+
+    // Most events queued for one subscriber before it is dropped
+    static final int MAX_PENDING = 16;
+
+    // Result of parseVersion for IDs not of this run
+    private static final long NO_VERSION = -1;
+
+    private final String runId;
+    private final QueryResultHttpMessageConverter converter;
+    private final int history;
+    private final long streamTimeoutMillis;
+
+    // Change sets by the version they lead to, oldest first
+    private final Deque<Version> versions = new ArrayDeque<>();
+    private long latest;
+
+    private final Map<Dataset, Set<Subscriber>> subscribers = new EnumMap<>(Dataset.class);
+    // Drains subscriber queues, taking turns between subscribers
+    private final ExecutorService sender;
+
+    @Autowired
+    public ChangeFeed(DataReloader data,
+                      QueryResultHttpMessageConverter converter,
+                      @Value("${coronavirus.feed.history}") int history,
+                      @Value("${coronavirus.feed.stream-timeout-ms}") long streamTimeoutMillis,
+                      @Value("${coronavirus.feed.sender-threads}") int senderThreads,
+                      MeterRegistry registry) {
+        this(data.current().runId(), converter, history, streamTimeoutMillis, senderThreads);
+        data.addListener(this::publish);
+        synchronized (this) {
+            // A reload may have been published since adding the listener
+            latest = Math.max(latest, data.current().version());
+        }
+        Gauge.builder("coronavirus.feed.subscribers", this, ChangeFeed::subscriberCount)
+                .description("Number of open change feed streams")
+                .register(registry);
+    }
+
+    /**
+     * Creates a feed of the snapshots of run {@code runId} that isn't
+     * attached to a {@link DataReloader}; changes are recorded by
+     * calling {@link #publish}.
+     */
+    ChangeFeed(String runId, QueryResultHttpMessageConverter converter,
+               int history, long streamTimeoutMillis, int senderThreads) {
+        this.runId = runId;
+        this.converter = converter;
+        this.history = history;
+        this.streamTimeoutMillis = streamTimeoutMillis;
+        this.sender = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread thread = new Thread(r, "change-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Dataset dataset : Dataset.values()) {
+            subscribers.put(dataset, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    /**
+     * Returns the changes of {@code dataset} from the version whose ID is
+     * {@code sinceId} to the latest version.
+     *
+     * @param sinceId version ID the client last saw, or null
+     */
+    public synchronized Changes since(String sinceId, Dataset dataset) {
+        String latestId = versionId(latest);
+        long since = parseVersion(sinceId);
+        if (since == NO_VERSION) {
+            return Changes.reset(sinceId, latestId);
+        }
+        if (since == latest) {
+            return Changes.of(sinceId, latestId, ChangeSet.empty());
+        }
+        Version oldest = versions.peekFirst();
+        if (oldest == null || since < oldest.version - 1 || since > latest) {
+            return Changes.reset(sinceId, latestId);
+        }
+        List<ChangeSet> changes = new ArrayList<>();
+        for (Version v : versions) {
+            if (v.version > since) {
+                ChangeSet c = v.changes.get(dataset);
+                if (c == null) {
+                    // The dataset didn't load on one side of this version
+                    return Changes.reset(sinceId, latestId);
+                }
+                changes.add(c);
+            }
+        }
+        return Changes.of(sinceId, latestId, ChangeSet.merge(changes));
+    }
+
+    /**
+     * Returns a stream of the changes of {@code dataset}, starting with
+     * the changes since {@code lastEventId} if the client sent one.
+     */
+    public SseEmitter subscribe(Dataset dataset, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, subscribers.get(dataset));
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+
+        // Publishing holds the same lock, so the catch-up is queued
+        // before any later event
+        synchronized (this) {
+            if (lastEventId != null) {
+                Changes changes = since(lastEventId, dataset);
+                subscriber.offer(changes.toVersion(), encode(changes));
+            }
+            subscriber.open();
+        }
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @PreDestroy
+    public void close() {
+        sender.shutdownNow();
+        subscribers.values().forEach(set -> set.forEach(s -> s.emitter.complete()));
+    }
+
+    /**
+     * Records the changes from {@code previous} to {@code snapshot} and
+     * queues them for subscribers.
+     */
+    void publish(DataSnapshot previous, DataSnapshot snapshot) {
+        Map<Dataset, ChangeSet> changes = new EnumMap<>(Dataset.class);
+        for (Dataset dataset : Dataset.values()) {
+            QueryEngine before = previous.timeSeries(dataset);
+            QueryEngine after = snapshot.timeSeries(dataset);
+            if (before != null && after != null) {
+                changes.put(dataset, ChangeSet.between(before.store(), after.store()));
+            }
+        }
+        synchronized (this) {
+            versions.addLast(new Version(snapshot.version(), changes));
+            while (versions.size() > history) {
+                versions.removeFirst();
+            }
+            latest = snapshot.version();
+
+            String previousId = versionId(previous.version());
+            String version = versionId(snapshot.version());
+            for (Dataset dataset : Dataset.values()) {
+                Set<Subscriber> datasetSubscribers = subscribers.get(dataset);
+                if (datasetSubscribers.isEmpty()) {
+                    continue;
+                }
+                ChangeSet c = changes.get(dataset);
+                byte[] encoded = encode((c == null)
+                        ? Changes.reset(previousId, version)
+                        : Changes.of(previousId, version, c));
+                for (Subscriber subscriber : datasetSubscribers) {
+                    subscriber.offer(version, encoded);
+                }
+            }
+        }
+    }
+
+    private byte[] encode(Changes changes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            converter.write(changes, out);
+        } catch (IOException e) {
+            // In-memory streams don't throw
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the ID of {@code version} of this run.
+     */
+    private String versionId(long version) {
+        return runId + ":" + version;
+    }
+
+    /**
+     * Returns the version identified by {@code id}, or NO_VERSION if
+     * {@code id} is null, malformed or belongs to another run.
+     */
+    private long parseVersion(String id) {
+        if (id == null) {
+            return NO_VERSION;
+        }
+        id = id.trim();
+        int separator = id.lastIndexOf(':');
+        if (separator < 0 || !id.substring(0, separator).equals(runId)) {
+            return NO_VERSION;
+        }
+        try {
+            long version = Long.parseLong(id.substring(separator + 1));
+            return (version < 0) ? NO_VERSION : version;
+        } catch (NumberFormatException e) {
+            return NO_VERSION;
+        }
+    }
+
+    /**
+     * One open stream and the events queued for it. Events are sent in
+     * order, one per task, by at most one sender thread at a time; the
+     * task is queued only while the subscriber has events.
+     */
+    private final class Subscriber implements Runnable {
+        final SseEmitter emitter;
+        // The set this subscriber is in while it receives events
+        final Set<Subscriber> subscribers;
+
+        // Event IDs and data not sent yet, oldest first
+        private final Deque<String> pendingIds = new ArrayDeque<>();
+        private final Deque<byte[]> pendingData = new ArrayDeque<>();
+        private boolean draining;
+        private boolean closed;
+        // Set if closed for falling behind rather than by the container
+        private boolean lagging;
+
+        Subscriber(SseEmitter emitter, Set<Subscriber> subscribers) {
+            this.emitter = emitter;
+            this.subscribers = subscribers;
+        }
+
+        /**
+         * Queues an event without blocking, and drops this subscriber
+         * if it has fallen too far behind.
+         */
+        synchronized void offer(String id, byte[] data) {
+            if (closed) {
+                return;
+            }
+            if (pendingIds.size() >= MAX_PENDING) {
+                log.debug("Dropping change feed subscriber {} events behind", MAX_PENDING);
+                // The sender thread completes the stream once its
+                // current send returns
+                lagging = true;
+                close();
+                return;
+            }
+            pendingIds.addLast(id);
+            pendingData.addLast(data);
+            if (!draining) {
+                draining = true;
+                sender.execute(this);
+            }
+        }
+
+        synchronized void open() {
+            if (!closed) {
+                subscribers.add(this);
+            }
+        }
+
+        synchronized void close() {
+            closed = true;
+            pendingIds.clear();
+            pendingData.clear();
+            subscribers.remove(this);
+        }
+
+        @Override
+        public void run() {
+            String id = null;
+            byte[] data = null;
+            boolean complete = false;
+            synchronized (this) {
+                if (closed || pendingIds.isEmpty()) {
+                    draining = false;
+                    complete = lagging;
+                } else {
+                    id = pendingIds.pollFirst();
+                    data = pendingData.pollFirst();
+                }
+            }
+            if (id == null) {
+                if (complete) {
+                    emitter.complete();
+                }
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event()
+                        .id(id)
+                        .name(EVENT_NAME)
+                        .data(data, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping change feed subscriber", e);
+                close();
+                emitter.completeWithError(e);
+                return;
+            }
+            // Requeue rather than loop, so subscribers with a backlog
+            // take turns with the others for the sender threads
+            sender.execute(this);
+        }
+    }
+
+    private static final class Version {
+        final long version;
+        final Map<Dataset, ChangeSet> changes;
+
+        Version(long version, Map<Dataset, ChangeSet> changes) {
+            this.version = version;
+            this.changes = changes;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.coronavirusapi;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Endpoints of the {@link ChangeFeed}: the cells changed since a data
+ * version, and a Server-Sent Events stream of changes as data is
+ * reloaded.
+ */
+@RestController
+public class ChangeFeedController {
+    private final ChangeFeed feed;
+
+    public ChangeFeedController(ChangeFeed feed) {
+        this.feed = feed;
+    }
+
+    /**
+     * Returns the cells of {@code dataset} that changed after the data
+     * version whose ID is {@code since} (the "to" of an earlier response);
+     * see {@link QueryResultHttpMessageConverter#write(Changes,
+     * java.io.OutputStream)} for the layout. Without {@code since}, returns
+     * a reset holding the latest version.
+     */
+    @GetMapping("/api/changes")
+    public ResponseEntity<Changes> changes(
+            @RequestParam(value = "since", required = false) String since,
+            @RequestParam(value = "pretty", defaultValue = "false") boolean pretty,
+            @RequestParam(value = "dataset", defaultValue = "legacy") String dataset) {
+        Changes changes = feed.since(since, Dataset.fromKey(dataset)).prettyPrinted(pretty);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(changes);
+    }
+
+    /**
+     * Streams the changes of {@code dataset} as "changes" events whose
+     * data is laid out like the response of {@link #changes}.
+     */
+    @GetMapping(value = "/api/changes/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(
+            @RequestParam(value = "dataset", defaultValue = "legacy") String dataset,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return feed.subscribe(Dataset.fromKey(dataset), lastEventId);
+    }
+}
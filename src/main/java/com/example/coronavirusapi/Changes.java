@@ -0,0 +1,73 @@
+package com.example.coronavirusapi;
+
+import com.example.coronavirusapi.store.ChangeSet;
+
+/**
+ * Changes of one dataset between two data versions, as returned by the
+ * change feed. Versions are identified by {@code <runId>:<version>}
+ * strings; see {@link ChangeFeed}.
+ *
+ * If the feed no longer has (or never had) the changes since the
+ * requested version, the result is a reset: it holds no changes, and the
+ * client must fetch the data again in full.
+ */
+public final class Changes {
+    private final String fromVersion;
+    private final String toVersion;
+    private final ChangeSet changes;
+    private final boolean pretty;
+
+    private Changes(String fromVersion, String toVersion, ChangeSet changes, boolean pretty) {
+        this.fromVersion = fromVersion;
+        this.toVersion = toVersion;
+        this.changes = changes;
+        this.pretty = pretty;
+    }
+
+    public static Changes of(String fromVersion, String toVersion, ChangeSet changes) {
+        return new Changes(fromVersion, toVersion, changes, false);
+    }
+
+    /**
+     * @param fromVersion the version the client asked for, or null if
+     *                    it didn't ask for one
+     */
+    public static Changes reset(String fromVersion, String toVersion) {
+        return new Changes(fromVersion, toVersion, null, false);
+    }
+
+    /**
+     * Returns a copy of these changes that is rendered
+     * with indentation if {@code pretty} is true.
+     */
+    public Changes prettyPrinted(boolean pretty) {
+        return new Changes(fromVersion, toVersion, changes, pretty);
+    }
+
+    /**
+     * Returns the version these changes start from, or null if this is
+     * a reset and the client didn't ask for a version.
+     */
+    public String fromVersion() {
+        return fromVersion;
+    }
+
+    public String toVersion() {
+        return toVersion;
+    }
+
+    public boolean isReset() {
+        return changes == null;
+    }
+
+    /**
+     * Returns the changed cells, or null if this is a reset.
+     */
+    public ChangeSet changes() {
+        return changes;
+    }
+
+    public boolean isPrettyPrinted() {
+        return pretty;
+    }
+}
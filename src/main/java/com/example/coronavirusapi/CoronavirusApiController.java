@@ -1,246 +1,336 @@
 package com.example.coronavirusapi;
 
+import com.example.coronavirusapi.custom_exceptions.InvalidBatchException;
 import com.example.coronavirusapi.custom_exceptions.InvalidDateFormatException;
+import com.example.coronavirusapi.custom_exceptions.InvalidDateRangeException;
+import com.example.coronavirusapi.custom_exceptions.InvalidSelectorException;
 import com.example.coronavirusapi.custom_exceptions.InvalidStateException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.csv.CsvMapper;
-import com.fasterxml.jackson.dataformat.csv.CsvSchema;
-import org.springframework.core.io.ClassPathResource;
+import com.example.coronavirusapi.store.EpochDays;
+import com.example.coronavirusapi.store.QueryEngine;
+import com.example.coronavirusapi.store.QueryResult;
+import com.example.coronavirusapi.store.TimeSeriesStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
-import java.io.File;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.stream.Collectors;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 @RestController
 public class CoronavirusApiController {
-    private final Map<String, Map<String, Map<String, Map<String, Integer>>>> data;
+    private final DataReloader data;
+
+    private final ResponseCache cache;
+    private final QueryResultHttpMessageConverter converter;
+    private final ApiMetrics metrics;
+    private final int maxBatchSize;
+    private final long maxCoalescedBytes;
+
+    // Encodings in progress, keyed by cache key and data version
+    private final SingleFlight<String, ResponseCache.Entry> encodings = new SingleFlight<>();
 
     // returns totals for the query parameter it is specified for
-    private static final String SUM_QUERY = "total";
+    private static final String SUM_QUERY = TimeSeriesStore.TOTAL;
 
     // returns all data for the query parameter it is specified for
-    private static final String DEFAULT_QUERY = "";
+    private static final String DEFAULT_QUERY = QueryEngine.ANY;
+
+    // Accepted forms of date request parameters
+    private static final String DATE_PATTERNS = "MMddyyyy or yyyy-MM-dd";
+
+    // Result of parseDate for "total" and ""
+    private static final int NO_DATE = EpochDays.INVALID;
+
+    // Upper estimate of the encoded size of one value in a response,
+    // used to decide whether a response is small enough to cache
+    // or to encode in memory
+    private static final int BYTES_PER_CELL = 48;
+
+    public CoronavirusApiController(DataReloader data,
+                                    ResponseCache cache,
+                                    QueryResultHttpMessageConverter converter,
+                                    ApiMetrics metrics,
+                                    @Value("${coronavirus.batch.max-size}") int maxBatchSize,
+                                    @Value("${coronavirus.coalesce.max-bytes}") long maxCoalescedBytes) {
+        this.data = data;
+        this.cache = cache;
+        this.converter = converter;
+        this.metrics = metrics;
+        this.maxBatchSize = maxBatchSize;
+        this.maxCoalescedBytes = maxCoalescedBytes;
+    }
 
     /**
-     * Enum for classifying a coronavirus case as a
-     * confirmed case, a death or a recovery.
+     * Helper method to query the time series of {@code snapshot}.
+     *
+     * @param dataset  {@code Dataset} enum describing the files to query.
+     * @param range    {@code int[]} holding the first and last epoch day
+     *                 (inclusive) to match, as returned by {@code checkInputValid}.
+     * @param caseType {@code CaseType} enum describing the case type
+     *                 (confirmed, deaths, recovered) to match.
+     *                 If null, matches all case types.
+     * @param daily    If true, returns new cases per day instead of
+     *                 cumulative counts.
+     * @param pretty   If true, the result is rendered with indentation.
+     * @return {@code QueryResult} containing all entries matching the query.
      */
-    private enum CaseType {CONFIRMED, DEATHS, RECOVERED}
-
-    public CoronavirusApiController() {
-        // Pre-process CSV data
-        data = new HashMap<>();
-        loadCsvResource(
-                data,
-                "csse_covid_19_data/csse_covid_19_time_series/" +
-                        "time_series_19-covid-Confirmed.csv",
-                CaseType.CONFIRMED
-        );
-        loadCsvResource(
-                data,
-                "csse_covid_19_data/csse_covid_19_time_series/" +
-                        "time_series_19-covid-Deaths.csv",
-                CaseType.DEATHS
-        );
-        loadCsvResource(
-                data,
-                "csse_covid_19_data/csse_covid_19_time_series/" +
-                        "time_series_19-covid-Recovered.csv",
-                CaseType.RECOVERED
-        );
+    private static QueryResult query(DataSnapshot snapshot, Dataset dataset, int[] range,
+                                     String country, String state,
+                                     CaseType caseType, boolean daily, boolean pretty) {
+        return snapshot.timeSeries(dataset)
+                .query(range[0], range[1], country, state, caseType, daily)
+                .prettyPrinted(pretty);
     }
 
-    private static void loadCsvResource(
-            Map<String, Map<String, Map<String, Map<String, Integer>>>> out,
-            String path,
-            CaseType caseType) {
-        Iterator<Map<String, String>> it = readCsvResource(path);
-        String caseName = caseType.name().toLowerCase();
+    /**
+     * Helper method to answer a query, using {@code cache} when possible.
+     *
+     * The whole request is answered from a single data snapshot.
+     * Responses carry an ETag derived from the snapshot's run ID and
+     * version and the normalized query, so conditional requests are
+     * answered with 304 Not Modified before any query is run.
+     *
+     * The result is encoded in the {@link ResponseFormat} negotiated from
+     * the Accept header, and cached separately for each format.
+     *
+     * Concurrent requests for the same uncached result share a single
+     * encoding of it, so a burst of identical requests costs one
+     * serialization whether or not the cache is warm. Results too large
+     * to cache are still encoded once and shared, but not kept; results
+     * too large to hold in memory are streamed to each client instead.
+     *
+     * The time spent here is recorded in {@code metrics} by endpoint
+     * and query shape; streamed serialization happens after it returns.
+     *
+     * @param endpoint name of the endpoint, used in the cache key
+     * @return response for the query, or null if the request was
+     *      answered with 304 Not Modified
+     * @throws HttpMediaTypeNotAcceptableException if the client accepts
+     *      none of the response formats
+     */
+    private ResponseEntity<?> respond(
+            String endpoint, Dataset dataset, int[] range, String country, String state,
+            CaseType caseType, boolean daily, boolean pretty, WebRequest request)
+            throws IOException, HttpMediaTypeNotAcceptableException {
+        long start = System.nanoTime();
+        ResponseFormat format = ResponseFormat.negotiate(request.getHeader(HttpHeaders.ACCEPT));
+        int region = ApiMetrics.region(country, state);
+        int dates = ApiMetrics.dates(range);
+        DataSnapshot snapshot = data.current();
+        long dataVersion = snapshot.version();
+        long lastModified = snapshot.loadedAt();
 
-        while (it.hasNext()) {
-            Map<String, String> row = it.next();
-            String country = row.remove("Country/Region");
-            String state = row.remove("Province/State");
-            // If `state` is an empty string, `row` describes the entire country
-            state = (state.isEmpty()) ? SUM_QUERY : state;
-            // Omit lat/lon
-            row.remove("Lat");
-            row.remove("Long");
+        String key = cacheKey(endpoint, dataset, range, country, state, daily, pretty, format);
+        String eTag = snapshot.eTag(key);
+        if (request.checkNotModified(eTag, lastModified)) {
+            metrics.recordOutcome(ApiMetrics.NOT_MODIFIED);
+            metrics.recordQuery(caseType, region, dates, System.nanoTime() - start);
+            return null;
+        }
 
-            out.putIfAbsent(country, new HashMap<>());
-            out.get(country).putIfAbsent(state, new HashMap<>());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(eTag)
+                .lastModified(lastModified)
+                .contentType(format.mediaType())
+                .varyBy(HttpHeaders.ACCEPT);
 
-            // Only date entries remain at this point
-            for (String date : row.keySet()) {
-                int cases = Integer.parseInt(row.get(date));
-                out.get(country).get(state).putIfAbsent(date, new HashMap<>());
-                out.get(country).get(state).get(date).put(caseName, cases);
+        ResponseCache.Entry entry = cache.get(key, dataVersion);
+        if (entry == null) {
+            QueryResult result = query(snapshot, dataset, range, country, state, caseType, daily, pretty);
+            long cells = result.cellCount();
+            metrics.recordResult(caseType, result.series().length, cells);
+            if (cells * BYTES_PER_CELL > maxCoalescedBytes) {
+                metrics.recordOutcome(ApiMetrics.STREAMED);
+                metrics.recordQuery(caseType, region, dates, System.nanoTime() - start);
+                return response.body(result);
             }
+            boolean[] encoded = new boolean[1];
+            entry = encodings.execute(key + "@" + dataVersion, () -> {
+                encoded[0] = true;
+                // The previous encoding may have finished since the lookup
+                ResponseCache.Entry cached = cache.get(key, dataVersion);
+                return (cached != null) ? cached : encode(key, dataVersion, result, format);
+            });
+            metrics.recordOutcome(encoded[0] ? ApiMetrics.CACHE_MISS : ApiMetrics.COALESCED);
+        } else {
+            metrics.recordOutcome(ApiMetrics.CACHE_HIT);
         }
-    }
-
-    private static Iterator<Map<String, String>> readCsvResource(String path) {
-        try {
-            ObjectMapper mapper = new CsvMapper();
-            CsvSchema schema = CsvSchema.emptySchema().withHeader();
-            File f = new ClassPathResource(path).getFile();
 
-            return mapper.readerFor(Map.class)
-                    .with(schema)
-                    .readValues(f);
-        } catch (IOException e) {
-            return Collections.emptyIterator();
+        // Streamed and uncacheable responses are compressed by the server;
+        // cached ones are sent pre-compressed if the client accepts gzip
+        response.varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = entry.gzip() != null
+                && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        byte[] body = gzip ? entry.gzip() : entry.body();
+        metrics.recordEncodedBytes(body.length);
+        metrics.recordQuery(caseType, region, dates, System.nanoTime() - start);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
         }
+        return response.body(body);
     }
 
     /**
-     * Helper method to reformat a {@code Date} date from
-     * to String`M/d/yy` format.
+     * Helper method to encode {@code result} in {@code format} and cache it
+     * under {@code key} if it is small enough.
      */
-    private static String reformatDate(Date date) {
-        SimpleDateFormat newPattern = new SimpleDateFormat("M/d/yy");
-        return newPattern.format(date);
+    private ResponseCache.Entry encode(String key, long dataVersion, QueryResult result,
+                                       ResponseFormat format) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            converter.write(result, format, out);
+        } catch (IOException e) {
+            // In-memory streams don't throw
+            throw new UncheckedIOException(e);
+        }
+        return cache.put(key, dataVersion, out.toByteArray());
     }
 
     /**
-     * Helper method to query internal {@code data} map.
-     *
-     * @param caseType {@code CaseType} enum describing the case type
-     *                 (confirmed, deaths, recovered) to match.
-     *                 If null, matches all case types.
-     * @return {@code Map} containing all entries matching the query.
+     * Helper method to check if an Accept-Encoding header accepts gzip:
+     * it must list gzip, or failing that "*", with a nonzero quality.
+     * Returns false if the header is missing.
      */
-    private Map<String, Map<String, Map<String, Map<String, Integer>>>>
-    query(Date date, String country, String state, CaseType caseType) {
-        String formattedDate = (date == null) ? null : reformatDate(date);
-        String caseName = (caseType == null) ? null : caseType.name().toLowerCase();
-
-        // This method looks hefty because it's basically trying
-        // to use `data` as a database. When we start using an actual database, this
-        // code will likely be deprecated since SQL does all of this for us
-        // and much more.
-        return data.entrySet().stream()
-                // Top level (keys are countries, values are {state: {...}} maps).
-                // Filter out all countries that aren't equal to `country`.
-                // Don't filter out any countries if `country` is the default query.
-                .filter(e -> (e.getKey().equalsIgnoreCase(country)
-                        || country.equalsIgnoreCase(DEFAULT_QUERY)))
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        e -> e.getValue().entrySet().stream()
-                                // Next level (keys are states, values are {date: {...}} maps).
-                                // Filter out all states that aren't equal to `state`.
-                                // Don't filter out any states if `state` is the default query.
-                                .filter(e1 -> (e1.getKey().equalsIgnoreCase(state)
-                                        || state.equalsIgnoreCase(DEFAULT_QUERY)))
-                                .collect(Collectors.toMap(
-                                        Map.Entry::getKey,
-                                        e1 -> e1.getValue().entrySet().stream()
-                                                // Next level (keys are dates, values are
-                                                // {confirmed: x, deaths: y, recovered: z}.
-                                                // Filter out all dates that aren't equal to `date`.
-                                                // Don't filter out any dates if `date` is the default query.
-                                                .filter(e2 -> (e2.getKey().equals(formattedDate)
-                                                        || formattedDate == null))
-                                                .collect(Collectors.toMap(
-                                                        Map.Entry::getKey,
-                                                        e2 -> e2.getValue().entrySet().stream()
-                                                                // Lowest level (keys are
-                                                                // "confirmed", "deaths",
-                                                                // "recovered", values are
-                                                                // integers).
-                                                                // Filter out all case types that
-                                                                // aren't equal to `caseType`.
-                                                                // Don't filter out anything
-                                                                // if `caseType` is null.
-                                                                .filter(e3 -> e3.getKey().equals(caseName)
-                                                                        || caseName == null)
-                                                                .collect(Collectors.toMap(
-                                                                        Map.Entry::getKey,
-                                                                        Map.Entry::getValue
-                                                                        )
-                                                                )
-                                                        )
-
-                                                )
-                                        )
-                                ).entrySet().stream()
-                                // Filter out state entries with empty data (state: {}).
-                                // This can happen if `date` is not found in `data`
-                                // and all countries/states are matched.
-                                .filter(e1 -> (!e1.getValue().isEmpty()))
-                                .collect(Collectors.toMap(
-                                        Map.Entry::getKey,
-                                        Map.Entry::getValue
-                                        )
-                                )
-                        )
-
-                ).entrySet().stream()
-                // Filter out country entries with empty data (country: {}).
-                // This can happen if `state` or `date` is not found in `data`
-                // and all countries are matched.
-                .filter(e -> (!e.getValue().isEmpty()))
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue
-                        )
-                );
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        double gzip = -1;
+        double any = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        quality = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        // Treat a malformed quality as "not acceptable"
+                        quality = 0;
+                    }
+                }
+            }
+            if (name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("x-gzip")) {
+                gzip = Math.max(gzip, quality);
+            } else if (name.equals("*")) {
+                any = Math.max(any, quality);
+            }
+        }
+        return (gzip >= 0) ? gzip > 0 : any > 0;
     }
 
-    // TODO: Issues to fix:
-    //  - Some (all?) countries with explicitly named provinces/states do not have
-    //    an 'all' key.
-    //  - Normalize returned date to MMddyyyy so sorting them lexicographically
-    //    works
-    //  - Design question: how can we support users only wanting sums for each country
-    //    (only display the 'all' key)?
-
     @GetMapping("/api/all")
-    public Map<String, Map<String, Map<String, Map<String, Integer>>>> all(
+    public ResponseEntity<?> all(
             @RequestParam(value = "date", defaultValue = DEFAULT_QUERY) String date,
+            @RequestParam(value = "from", defaultValue = DEFAULT_QUERY) String from,
+            @RequestParam(value = "to", defaultValue = DEFAULT_QUERY) String to,
             @RequestParam(value = "country", defaultValue = DEFAULT_QUERY) String country,
-            @RequestParam(value = "state", defaultValue = DEFAULT_QUERY) String state)
-            throws InvalidDateFormatException {
-        Date processedDate = checkInputValid(date, country, state);
-        return query(processedDate, country, state, null);
+            @RequestParam(value = "state", defaultValue = DEFAULT_QUERY) String state,
+            @RequestParam(value = "daily", defaultValue = "false") boolean daily,
+            @RequestParam(value = "pretty", defaultValue = "false") boolean pretty,
+            @RequestParam(value = "dataset", defaultValue = "legacy") String dataset,
+            WebRequest request)
+            throws InvalidDateFormatException, IOException, HttpMediaTypeNotAcceptableException {
+        int[] range = checkInputValid(date, from, to, country, state);
+        return respond("all", Dataset.fromKey(dataset), range, country, state,
+                null, daily, pretty, request);
     }
 
-
     @GetMapping("/api/confirmed")
-    public Map<String, Map<String, Map<String, Map<String, Integer>>>> confirmed(
+    public ResponseEntity<?> confirmed(
             @RequestParam(value = "date", defaultValue = DEFAULT_QUERY) String date,
+            @RequestParam(value = "from", defaultValue = DEFAULT_QUERY) String from,
+            @RequestParam(value = "to", defaultValue = DEFAULT_QUERY) String to,
             @RequestParam(value = "country", defaultValue = DEFAULT_QUERY) String country,
-            @RequestParam(value = "state", defaultValue = DEFAULT_QUERY) String state)
-            throws InvalidDateFormatException {
-        Date processedDate = checkInputValid(date, country, state);
-        return query(processedDate, country, state, CaseType.CONFIRMED);
+            @RequestParam(value = "state", defaultValue = DEFAULT_QUERY) String state,
+            @RequestParam(value = "daily", defaultValue = "false") boolean daily,
+            @RequestParam(value = "pretty", defaultValue = "false") boolean pretty,
+            @RequestParam(value = "dataset", defaultValue = "legacy") String dataset,
+            WebRequest request)
+            throws InvalidDateFormatException, IOException, HttpMediaTypeNotAcceptableException {
+        int[] range = checkInputValid(date, from, to, country, state);
+        return respond("confirmed", Dataset.fromKey(dataset), range, country, state,
+                CaseType.CONFIRMED, daily, pretty, request);
     }
 
     @GetMapping("/api/deaths")
-    public Map<String, Map<String, Map<String, Map<String, Integer>>>> deaths(
+    public ResponseEntity<?> deaths(
             @RequestParam(value = "date", defaultValue = DEFAULT_QUERY) String date,
+            @RequestParam(value = "from", defaultValue = DEFAULT_QUERY) String from,
+            @RequestParam(value = "to", defaultValue = DEFAULT_QUERY) String to,
             @RequestParam(value = "country", defaultValue = DEFAULT_QUERY) String country,
-            @RequestParam(value = "state", defaultValue = DEFAULT_QUERY) String state)
-            throws InvalidDateFormatException {
-        Date processedDate = checkInputValid(date, country, state);
-        return query(processedDate, country, state, CaseType.DEATHS);
+            @RequestParam(value = "state", defaultValue = DEFAULT_QUERY) String state,
+            @RequestParam(value = "daily", defaultValue = "false") boolean daily,
+            @RequestParam(value = "pretty", defaultValue = "false") boolean pretty,
+            @RequestParam(value = "dataset", defaultValue = "legacy") String dataset,
+            WebRequest request)
+            throws InvalidDateFormatException, IOException, HttpMediaTypeNotAcceptableException {
+        int[] range = checkInputValid(date, from, to, country, state);
+        return respond("deaths", Dataset.fromKey(dataset), range, country, state,
+                CaseType.DEATHS, daily, pretty, request);
     }
 
     @GetMapping("api/recovered")
-    public Map<String, Map<String, Map<String, Map<String, Integer>>>> recovered(
+    public ResponseEntity<?> recovered(
             @RequestParam(value = "date", defaultValue = DEFAULT_QUERY) String date,
+            @RequestParam(value = "from", defaultValue = DEFAULT_QUERY) String from,
+            @RequestParam(value = "to", defaultValue = DEFAULT_QUERY) String to,
             @RequestParam(value = "country", defaultValue = DEFAULT_QUERY) String country,
-            @RequestParam(value = "state", defaultValue = DEFAULT_QUERY) String state)
-            throws InvalidDateFormatException {
-        Date processedDate = checkInputValid(date, country, state);
-        return query(processedDate, country, state, CaseType.RECOVERED);
+            @RequestParam(value = "state", defaultValue = DEFAULT_QUERY) String state,
+            @RequestParam(value = "daily", defaultValue = "false") boolean daily,
+            @RequestParam(value = "pretty", defaultValue = "false") boolean pretty,
+            @RequestParam(value = "dataset", defaultValue = "legacy") String dataset,
+            WebRequest request)
+            throws InvalidDateFormatException, IOException, HttpMediaTypeNotAcceptableException {
+        int[] range = checkInputValid(date, from, to, country, state);
+        return respond("recovered", Dataset.fromKey(dataset), range, country, state,
+                CaseType.RECOVERED, daily, pretty, request);
+    }
+
+    /**
+     * Answers many queries in one request. All queries are answered from
+     * the same data snapshot, and results are returned in request order.
+     * A query with invalid inputs yields an {"error": message} item
+     * instead of failing the whole batch.
+     */
+    @PostMapping("/api/batch")
+    public BatchResult batch(
+            @RequestBody List<BatchSelector> selectors,
+            @RequestParam(value = "pretty", defaultValue = "false") boolean pretty) {
+        if (selectors.isEmpty() || selectors.size() > maxBatchSize) {
+            throw new InvalidBatchException(maxBatchSize);
+        }
+        long start = System.nanoTime();
+        DataSnapshot snapshot = data.current();
+        BatchResult out = new BatchResult(pretty);
+        for (BatchSelector selector : selectors) {
+            try {
+                if (selector == null) {
+                    throw new InvalidSelectorException();
+                }
+                int[] range = checkInputValid(selector.getDate(), selector.getFrom(),
+                        selector.getTo(), selector.getCountry(), selector.getState());
+                out.add(query(snapshot, Dataset.fromKey(selector.getDataset()), range,
+                        selector.getCountry(), selector.getState(),
+                        CaseType.fromKey(selector.getCaseType()), selector.isDaily(), false));
+            } catch (IllegalArgumentException e) {
+                metrics.recordValidationFailure(e);
+                out.addError(e.getLocalizedMessage());
+            }
+        }
+        metrics.recordBatch(selectors.size(), System.nanoTime() - start);
+        return out;
     }
 
     /**
@@ -249,14 +339,18 @@ public class CoronavirusApiController {
      *      indicates that a specific state request parameter was provided,
      *      but country request parameter was "total"
      * @throws InvalidDateFormatException
-     *      indicates that the given date is not parse-able
-     *      into a Date object, or one of the acceptable date queries
+     *      indicates that one of the given dates is not a valid date
+     *      in MMddyyyy or yyyy-MM-dd form, or one of the acceptable date queries
      *      (i.e. "total" or "")
+     * @throws InvalidDateRangeException
+     *      indicates that date was combined with from/to,
+     *      or that from is after to
      *
-     * Returns Date object representing the given date, or null if
-     *      date parameter was "total" or ""
+     * Returns int[] holding the first and last epoch day (inclusive)
+     *      to match. Unbounded ends are Integer.MIN_VALUE/MAX_VALUE.
      */
-    private Date checkInputValid(String date, String country, String state)
+    static int[] checkInputValid(String date, String from, String to,
+                                 String country, String state)
             throws InvalidDateFormatException {
         if (country.equalsIgnoreCase(SUM_QUERY) &&
                 !(state.equalsIgnoreCase(SUM_QUERY)
@@ -264,17 +358,76 @@ public class CoronavirusApiController {
             throw new InvalidStateException();
         }
 
+        int day = parseDate(date);
+        int fromDay = parseDate(from);
+        int toDay = parseDate(to);
+        if (day != NO_DATE) {
+            if (fromDay != NO_DATE || toDay != NO_DATE) {
+                throw new InvalidDateRangeException(
+                        "`date` may not be combined with `from` or `to`");
+            }
+            return new int[]{day, day};
+        }
+
+        if (fromDay == NO_DATE) {
+            fromDay = Integer.MIN_VALUE;
+        }
+        if (toDay == NO_DATE) {
+            toDay = Integer.MAX_VALUE;
+        }
+        if (fromDay > toDay) {
+            throw new InvalidDateRangeException("`from` may not be after `to`");
+        }
+        return new int[]{fromDay, toDay};
+    }
+
+    /**
+     * Helper method to parse a date request parameter.
+     * @throws InvalidDateFormatException
+     *      indicates that the given date is not a valid date
+     *      in MMddyyyy or yyyy-MM-dd form, or one of the acceptable
+     *      date queries (i.e. "total" or "")
+     *
+     * Returns the epoch day of the given date, or NO_DATE if
+     *      date parameter was "total" or ""
+     */
+    private static int parseDate(String date) throws InvalidDateFormatException {
         if (date.equalsIgnoreCase(DEFAULT_QUERY)
                 || date.equalsIgnoreCase(SUM_QUERY)) {
-            return null;
-        } else {
-            String datePattern = "MMddyyyy";
-            try {
-                SimpleDateFormat format = new SimpleDateFormat(datePattern);
-                return format.parse(date);
-            } catch (ParseException e) {
-                throw new InvalidDateFormatException(datePattern, e);
-            }
+            return NO_DATE;
+        }
+        int day = EpochDays.parse(date);
+        if (day == EpochDays.INVALID) {
+            throw new InvalidDateFormatException(DATE_PATTERNS, null);
+        }
+        return day;
+    }
+
+    /**
+     * Helper method to build the cache key of a query. Regions are
+     * case-folded while appending, so differently cased requests for
+     * the same region share a key without lowercased copies of them.
+     */
+    private static String cacheKey(String endpoint, Dataset dataset, int[] range,
+                                   String country, String state, boolean daily,
+                                   boolean pretty, ResponseFormat format) {
+        StringBuilder key = new StringBuilder(64 + country.length() + state.length())
+                .append(endpoint).append('|')
+                .append(dataset.key()).append('|')
+                .append(range[0]).append('|')
+                .append(range[1]).append('|');
+        appendFolded(key, country).append('|');
+        appendFolded(key, state).append('|');
+        return key.append(daily).append('|')
+                .append(pretty).append('|')
+                .append(format.key())
+                .toString();
+    }
+
+    private static StringBuilder appendFolded(StringBuilder out, String name) {
+        for (int i = 0; i < name.length(); i++) {
+            out.append(Character.toLowerCase(name.charAt(i)));
         }
+        return out;
     }
 }
@@ -1,7 +1,14 @@
 package com.example.coronavirusapi;
 import java.util.*;
 
+import com.example.coronavirusapi.custom_exceptions.InvalidBatchException;
+import com.example.coronavirusapi.custom_exceptions.InvalidCaseTypeException;
+import com.example.coronavirusapi.custom_exceptions.InvalidCoordinatesException;
 import com.example.coronavirusapi.custom_exceptions.InvalidDateFormatException;
+import com.example.coronavirusapi.custom_exceptions.InvalidDateRangeException;
+import com.example.coronavirusapi.custom_exceptions.InvalidDatasetException;
+import com.example.coronavirusapi.custom_exceptions.InvalidMetricException;
+import com.example.coronavirusapi.custom_exceptions.InvalidParameterRangeException;
 import com.example.coronavirusapi.custom_exceptions.InvalidStateException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -14,12 +21,60 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 
 @ControllerAdvice
 public class CoronavirusApiControllerAdvice extends ResponseEntityExceptionHandler {
+    private final ApiMetrics metrics;
+
+    public CoronavirusApiControllerAdvice(ApiMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @ExceptionHandler(InvalidBatchException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidBatchException(
+            InvalidBatchException ex) {
+        return createResponse(ex);
+    }
+
+    @ExceptionHandler(InvalidCaseTypeException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidCaseTypeException(
+            InvalidCaseTypeException ex) {
+        return createResponse(ex);
+    }
+
+    @ExceptionHandler(InvalidCoordinatesException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidCoordinatesException(
+            InvalidCoordinatesException ex) {
+        return createResponse(ex);
+    }
+
     @ExceptionHandler(InvalidDateFormatException.class)
     public ResponseEntity<Map<String, String>> handleInvalidDateFormatException(
             InvalidDateFormatException ex) {
         return createResponse(ex);
     }
 
+    @ExceptionHandler(InvalidDateRangeException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidDateRangeException(
+            InvalidDateRangeException ex) {
+        return createResponse(ex);
+    }
+
+    @ExceptionHandler(InvalidDatasetException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidDatasetException(
+            InvalidDatasetException ex) {
+        return createResponse(ex);
+    }
+
+    @ExceptionHandler(InvalidMetricException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidMetricException(
+            InvalidMetricException ex) {
+        return createResponse(ex);
+    }
+
+    @ExceptionHandler(InvalidParameterRangeException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidParameterRangeException(
+            InvalidParameterRangeException ex) {
+        return createResponse(ex);
+    }
+
     @ExceptionHandler(InvalidStateException.class)
     public ResponseEntity<Map<String, String>> handleInvalidStateException(
             InvalidStateException ex) {
@@ -34,6 +89,7 @@ public class CoronavirusApiControllerAdvice extends ResponseEntityExceptionHandl
     }
 
     private ResponseEntity<Map<String, String>> createResponse(Exception ex) {
+        metrics.recordValidationFailure(ex);
         Map<String, String> body = Map.of("error", ex.getLocalizedMessage());
         return new ResponseEntity(body, HttpStatus.BAD_REQUEST);
     }
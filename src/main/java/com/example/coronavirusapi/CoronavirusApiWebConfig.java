@@ -0,0 +1,30 @@
+package com.example.coronavirusapi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class CoronavirusApiWebConfig implements WebMvcConfigurer {
+    private final QueryResultHttpMessageConverter queryResultConverter;
+
+    public CoronavirusApiWebConfig(ObjectMapper objectMapper, MeterRegistry registry) {
+        this.queryResultConverter =
+                new QueryResultHttpMessageConverter(objectMapper.getFactory(), registry);
+    }
+
+    @Bean
+    public QueryResultHttpMessageConverter queryResultHttpMessageConverter() {
+        return queryResultConverter;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, queryResultConverter);
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.coronavirusapi;
+
+import com.example.coronavirusapi.store.DailyReport;
+import com.example.coronavirusapi.store.DailyReportCsvParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+
+/**
+ * Lazily loaded archive of the CSSE daily reports
+ * ({@code csse_covid_19_daily_reports/MM-dd-yyyy.csv}).
+ *
+ * An index from date to file is built when the data is loaded, by
+ * listing the directory once. Reports are only parsed when first
+ * requested, and parsed reports are kept in an LRU cache bounded by
+ * {@code coronavirus.reports.cache.max-bytes}, so a miss costs a single
+ * file parse and the archive's heap use doesn't grow with its length.
+ * Concurrent misses for the same date share one parse.
+ *
+ * The index is rebuilt and the cache cleared on every data reload,
+ * including reloads triggered by new files in the reports directory.
+ * Each rebuild starts a new {@link #generation()}, which responses built
+ * from the archive should include in their validators, since the index
+ * is refreshed only after the new data snapshot has been published.
+ */
+@Component
+public class DailyReportArchive {
+    private static final Logger log = LoggerFactory.getLogger(DailyReportArchive.class);
+
+    /**
+     * Directory of the daily reports, relative to the data location.
+     */
+    public static final String DAILY_REPORTS_DIR = "csse_covid_19_daily_reports/";
+
+    // Date format of the report file names
+    private static final DateTimeFormatter FILE_DATE_FORMAT =
+            DateTimeFormatter.ofPattern("MM-dd-yyyy'.csv'");
+
+    private final ResourcePatternResolver resolver;
+    private final String location;
+    private final long maxBytes;
+
+    // Epoch day -> report file; replaced as a whole on reload
+    private volatile NavigableMap<Integer, Resource> index;
+
+    private final LinkedHashMap<Integer, DailyReport> reports =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    // Incremented on reload, so parses of old files aren't cached
+    private long generation;
+    // Time the index was last built, in epoch milliseconds
+    private long indexedAt;
+    // Parses in progress, keyed by day and generation
+    private final SingleFlight<String, DailyReport> parses = new SingleFlight<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer parseTimer;
+
+    public DailyReportArchive(DataReloader data,
+                              ResourceLoader resourceLoader,
+                              @Value("${coronavirus.reports.cache.max-bytes}") long maxBytes,
+                              MeterRegistry registry) {
+        this.resolver = new PathMatchingResourcePatternResolver(resourceLoader);
+        this.location = data.location();
+        this.maxBytes = maxBytes;
+        this.index = buildIndex();
+        this.indexedAt = System.currentTimeMillis();
+        data.addListener((previous, snapshot) -> refresh());
+
+        hits = Counter.builder("coronavirus.reports.cache")
+                .description("Daily report lookups by whether the report was cached")
+                .tag("result", "hit")
+                .register(registry);
+        misses = Counter.builder("coronavirus.reports.cache")
+                .description("Daily report lookups by whether the report was cached")
+                .tag("result", "miss")
+                .register(registry);
+        parseTimer = Timer.builder("coronavirus.reports.parse")
+                .description("Time to parse a daily report file")
+                .register(registry);
+        Gauge.builder("coronavirus.reports.cache.bytes", this, DailyReportArchive::size)
+                .description("Approximate size of the cached daily reports")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * Returns the epoch days that have a report, in ascending order.
+     */
+    public NavigableSet<Integer> days() {
+        return index.navigableKeySet();
+    }
+
+    /**
+     * Returns the report of epoch day {@code day}, or null if there is none.
+     *
+     * @throws UncheckedIOException     if the report can't be read
+     * @throws IllegalArgumentException if the report is malformed
+     */
+    public DailyReport report(int day) {
+        Resource resource;
+        long parsedGeneration;
+        // Read the index with the generation it belongs to
+        synchronized (this) {
+            resource = index.get(day);
+            if (resource == null) {
+                return null;
+            }
+            DailyReport report = reports.get(day);
+            if (report != null) {
+                hits.increment();
+                return report;
+            }
+            parsedGeneration = generation;
+        }
+        misses.increment();
+        return parses.execute(day + "@" + parsedGeneration, () -> {
+            DailyReport report = parseTimer.record(() -> parse(resource, day));
+            put(report, parsedGeneration);
+            return report;
+        });
+    }
+
+    public synchronized long size() {
+        return bytes;
+    }
+
+    /**
+     * Returns the generation of the index, which starts at 0 and
+     * increases every time the index is rebuilt. Reports and days read
+     * after this call are of this generation or a later one.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Returns the time the index was last built, in epoch milliseconds.
+     */
+    public synchronized long indexedAt() {
+        return indexedAt;
+    }
+
+    private synchronized void put(DailyReport report, long parsedGeneration) {
+        if (parsedGeneration != generation || report.sizeBytes() > maxBytes) {
+            return;
+        }
+        DailyReport old = reports.put(report.day(), report);
+        bytes += report.sizeBytes() - ((old == null) ? 0 : old.sizeBytes());
+        Iterator<DailyReport> it = reports.values().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            bytes -= it.next().sizeBytes();
+            it.remove();
+        }
+    }
+
+    private void refresh() {
+        NavigableMap<Integer, Resource> rebuilt = buildIndex();
+        synchronized (this) {
+            index = rebuilt;
+            reports.clear();
+            bytes = 0;
+            generation++;
+            indexedAt = System.currentTimeMillis();
+        }
+    }
+
+    private NavigableMap<Integer, Resource> buildIndex() {
+        NavigableMap<Integer, Resource> files = new TreeMap<>();
+        try {
+            for (Resource resource : resolver.getResources(location + DAILY_REPORTS_DIR + "*.csv")) {
+                String name = resource.getFilename();
+                try {
+                    files.put((int) LocalDate.parse(name, FILE_DATE_FORMAT).toEpochDay(), resource);
+                } catch (DateTimeParseException e) {
+                    log.warn("Ignoring daily report {} not named MM-dd-yyyy.csv", name);
+                }
+            }
+        } catch (IOException e) {
+            // A missing directory means there are no reports
+            log.warn("Could not list daily reports under " + location, e);
+        }
+        log.info("Indexed {} daily reports", files.size());
+        return Collections.unmodifiableNavigableMap(files);
+    }
+
+    private static DailyReport parse(Resource resource, int day) {
+        try (InputStream in = resource.getInputStream()) {
+            return DailyReportCsvParser.parse(in, day);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + resource.getDescription(), e);
+        }
+    }
+}
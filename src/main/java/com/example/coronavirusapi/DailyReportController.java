@@ -0,0 +1,89 @@
+package com.example.coronavirusapi;
+
+import com.example.coronavirusapi.store.DailyReport;
+import com.example.coronavirusapi.store.QueryEngine;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Endpoints for the per-day CSSE daily reports, which unlike the time
+ * series carry each region's Last Update time. Reports are loaded on
+ * first access; see {@link DailyReportArchive}. Validators include the
+ * archive's generation, so they change as soon as the archive is
+ * refreshed rather than when the time series are.
+ */
+@RestController
+public class DailyReportController {
+    private final DataReloader data;
+    private final DailyReportArchive archive;
+
+    public DailyReportController(DataReloader data, DailyReportArchive archive) {
+        this.data = data;
+        this.archive = archive;
+    }
+
+    /**
+     * Returns the rows of the report of {@code date} (or the latest report)
+     * matching {@code country} and {@code state}. Returns an empty object if
+     * there is no report for the date.
+     */
+    @GetMapping("/api/reports")
+    public ResponseEntity<?> report(
+            @RequestParam(value = "date", defaultValue = QueryEngine.ANY) String date,
+            @RequestParam(value = "country", defaultValue = QueryEngine.ANY) String country,
+            @RequestParam(value = "state", defaultValue = QueryEngine.ANY) String state,
+            @RequestParam(value = "pretty", defaultValue = "false") boolean pretty,
+            WebRequest request) {
+        int[] range = CoronavirusApiController.checkInputValid(
+                date, QueryEngine.ANY, QueryEngine.ANY, country, state);
+        // Read before anything else of the archive, so the validators
+        // are never newer than the report served
+        long lastModified = archive.indexedAt();
+        long generation = archive.generation();
+        // Without a date, use the latest report
+        Integer day = (range[0] == range[1]) ? Integer.valueOf(range[0]) : latestDay();
+
+        // The snapshot contributes the run ID
+        String eTag = data.current().eTag(Long.toString(generation), String.valueOf(day),
+                country.toLowerCase(Locale.ROOT), state.toLowerCase(Locale.ROOT),
+                Boolean.toString(pretty));
+        if (request.checkNotModified(eTag, lastModified)) {
+            return null;
+        }
+
+        DailyReport report = (day == null) ? null : archive.report(day);
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+                .eTag(eTag)
+                .lastModified(lastModified)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (report == null) {
+            return ok.body(new LinkedHashMap<>());
+        }
+        return ok.body(new ReportResult(report, report.select(country, state), pretty));
+    }
+
+    /**
+     * Returns the dates that have a daily report, in ascending order.
+     */
+    @GetMapping("/api/reports/dates")
+    public List<String> dates() {
+        List<String> dates = new ArrayList<>();
+        for (int day : archive.days()) {
+            dates.add(QueryEngine.dateKey(day));
+        }
+        return dates;
+    }
+
+    private Integer latestDay() {
+        return archive.days().isEmpty() ? null : archive.days().last();
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.coronavirusapi;
+
+import com.example.coronavirusapi.store.QueryEngine;
+import com.example.coronavirusapi.store.TimeSeriesStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Loads the data and publishes it as an immutable {@link DataSnapshot}.
+ *
+ * If {@code coronavirus.data.snapshot-dir} is set, loaded stores are
+ * compiled into binary files there, which later loads (and other
+ * instances sharing the directory) map instead of parsing CSV files.
+ *
+ * If {@code coronavirus.data.dir} is set, data is loaded from that
+ * directory (laid out like {@code csse_covid_19_data}) and reloaded in the
+ * background whenever its time series or daily report files change.
+ * Otherwise the bundled classpath data is loaded once.
+ *
+ * A reload builds the new snapshot while the old one keeps serving, then
+ * swaps it in through a single atomic reference. Readers never lock and
+ * never see a partially built snapshot, and the old snapshot becomes
+ * garbage as soon as the requests using it finish.
+ *
+ * Listeners are told about every snapshot published after they were
+ * added, together with the snapshot it replaced.
+ *
+ * Load times, the data version and the size of each dataset's store
+ * are published in {@code registry}.
+ */
+@Component
+public class DataReloader {
+    private static final Logger log = LoggerFactory.getLogger(DataReloader.class);
+
+    private static final String CLASSPATH_LOCATION = "classpath:csse_covid_19_data/";
+
+    private final TimeSeriesLoader timeSeriesLoader;
+    private final Path dataDir;
+    private final String location;
+    private final long reloadDelayMillis;
+    private final Timer loadTimer;
+    // Tells snapshots of this run apart from those of earlier runs,
+    // whose versions also started at 1
+    private final String runId =
+            Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
+    private final AtomicReference<DataSnapshot> current = new AtomicReference<>();
+    private final List<BiConsumer<DataSnapshot, DataSnapshot>> listeners =
+            new CopyOnWriteArrayList<>();
+    private WatchService watchService;
+    private Thread watcher;
+
+    public DataReloader(
+            ResourceLoader resourceLoader,
+            @Value("${coronavirus.data.dir}") String dataDir,
+            @Value("${coronavirus.data.reload-delay-ms}") long reloadDelayMillis,
+            @Value("${coronavirus.data.snapshot-dir}") String snapshotDir,
+            MeterRegistry registry) {
+        this.dataDir = dataDir.isEmpty() ? null : Paths.get(dataDir).toAbsolutePath();
+        this.reloadDelayMillis = reloadDelayMillis;
+
+        String location = (this.dataDir == null)
+                ? CLASSPATH_LOCATION
+                : this.dataDir.toUri().toString();
+        this.location = location.endsWith("/") ? location : location + "/";
+        this.timeSeriesLoader = new TimeSeriesLoader(resourceLoader, this.location,
+                snapshotDir.isEmpty() ? null : Paths.get(snapshotDir),
+                registry);
+        this.loadTimer = Timer.builder("coronavirus.data.load")
+                .description("Time to load all data and publish a snapshot")
+                .register(registry);
+        reload();
+        registerGauges(registry);
+    }
+
+    private void registerGauges(MeterRegistry registry) {
+        Gauge.builder("coronavirus.data.version", this, r -> r.current().version())
+                .description("Version of the published data snapshot")
+                .register(registry);
+        for (Dataset dataset : Dataset.values()) {
+            storeGauge(registry, "coronavirus.store.series", "Number of series",
+                    dataset, TimeSeriesStore::seriesCount);
+            storeGauge(registry, "coronavirus.store.days", "Number of days",
+                    dataset, TimeSeriesStore::dayCount);
+            storeGauge(registry, "coronavirus.store.cells", "Number of values",
+                    dataset, TimeSeriesStore::cellCount);
+            storeGauge(registry, "coronavirus.store.bytes", "Size of the value columns",
+                    dataset, store -> (double) store.cellCount() * Integer.BYTES);
+        }
+    }
+
+    private void storeGauge(MeterRegistry registry, String name, String description,
+                            Dataset dataset, ToDoubleFunction<TimeSeriesStore> value) {
+        Gauge.builder(name, this, r -> {
+            QueryEngine engine = r.current().timeSeries(dataset);
+            return (engine == null) ? Double.NaN : value.applyAsDouble(engine.store());
+        })
+                .description(description)
+                .tag("dataset", dataset.key())
+                .register(registry);
+    }
+
+    /**
+     * Returns the Spring resource location of the data directory,
+     * ending with a slash.
+     */
+    public String location() {
+        return location;
+    }
+
+    /**
+     * Returns the most recently published snapshot.
+     */
+    public DataSnapshot current() {
+        return current.get();
+    }
+
+    /**
+     * Adds a listener called with the previous and the new snapshot
+     * after each later reload, on the reloading thread.
+     */
+    public void addListener(BiConsumer<DataSnapshot, DataSnapshot> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Loads all data and publishes it as a new snapshot.
+     */
+    public synchronized DataSnapshot reload() {
+        long start = System.nanoTime();
+        Map<Dataset, QueryEngine> timeSeries = new EnumMap<>(Dataset.class);
+        timeSeriesLoader.load().forEach((dataset, store) ->
+                timeSeries.put(dataset, new QueryEngine(store)));
+
+        DataSnapshot previous = current.get();
+        long version = (previous == null) ? 1 : previous.version() + 1;
+        DataSnapshot snapshot = new DataSnapshot(timeSeries, runId, version,
+                System.currentTimeMillis());
+        current.set(snapshot);
+
+        long nanos = System.nanoTime() - start;
+        loadTimer.record(nanos, TimeUnit.NANOSECONDS);
+        log.info("Loaded data version {} (run {}) in {} ms",
+                version, runId, TimeUnit.NANOSECONDS.toMillis(nanos));
+        timeSeries.forEach((dataset, engine) ->
+                log.info("Dataset {}: {} series, {} days", dataset.key(),
+                        engine.store().seriesCount(), engine.store().dayCount()));
+
+        for (BiConsumer<DataSnapshot, DataSnapshot> listener : listeners) {
+            try {
+                listener.accept(previous, snapshot);
+            } catch (RuntimeException e) {
+                // The snapshot is already published
+                log.error("Data listener failed for version " + version, e);
+            }
+        }
+        return snapshot;
+    }
+
+    @PostConstruct
+    public void startWatching() throws IOException {
+        if (dataDir == null) {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        dataDir.resolve(TimeSeriesLoader.TIME_SERIES_DIR).register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        // Listeners such as DailyReportArchive refresh from it on reload
+        Path reportsDir = dataDir.resolve(DailyReportArchive.DAILY_REPORTS_DIR);
+        if (Files.isDirectory(reportsDir)) {
+            reportsDir.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+        }
+
+        watcher = new Thread(this::watch, "data-reloader");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    @PreDestroy
+    public void stopWatching() throws IOException {
+        if (watcher != null) {
+            watcher.interrupt();
+            watchService.close();
+        }
+    }
+
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                // Files are usually written in several steps (or several files
+                // at once), so wait until no changes arrive for a while
+                do {
+                    key.pollEvents();
+                    key.reset();
+                } while ((key = watchService.poll(reloadDelayMillis, TimeUnit.MILLISECONDS)) != null);
+
+                try {
+                    reload();
+                } catch (RuntimeException e) {
+                    // Keep serving the previous snapshot
+                    log.error("Failed to reload data from " + dataDir, e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+}
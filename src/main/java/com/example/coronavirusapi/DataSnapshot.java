@@ -0,0 +1,68 @@
+package com.example.coronavirusapi;
+
+import com.example.coronavirusapi.store.QueryEngine;
+
+import java.util.Map;
+
+/**
+ * Immutable, versioned snapshot of all loaded data.
+ *
+ * Every load publishes a new snapshot with a higher version. Versions
+ * restart at 1 when the server restarts, so a snapshot is identified by
+ * its version together with the run ID of the process that loaded it.
+ * Request handlers read the current snapshot once and use it throughout,
+ * so a request never mixes data from two loads.
+ */
+public final class DataSnapshot {
+    private final Map<Dataset, QueryEngine> timeSeries;
+    private final String runId;
+    private final long version;
+    private final long loadedAt;
+
+    public DataSnapshot(Map<Dataset, QueryEngine> timeSeries, String runId, long version,
+                        long loadedAt) {
+        this.timeSeries = timeSeries;
+        this.runId = runId;
+        this.version = version;
+        this.loadedAt = loadedAt;
+    }
+
+    public QueryEngine timeSeries(Dataset dataset) {
+        return timeSeries.get(dataset);
+    }
+
+    /**
+     * Returns the ID of the server run that loaded this snapshot,
+     * chosen at random when the server starts.
+     */
+    public String runId() {
+        return runId;
+    }
+
+    /**
+     * Returns the version of this snapshot. Versions start at 1
+     * and increase with every load.
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Returns the time this snapshot was loaded, in epoch milliseconds.
+     */
+    public long loadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * Returns a weak ETag for a response computed from this snapshot.
+     * Responses that differ in anything but the data are told apart by
+     * {@code key}, typically the endpoint and its normalized parameters.
+     * The run ID is included, so a validator from before a restart
+     * never matches data loaded after it.
+     */
+    public String eTag(String... key) {
+        return "W/\"" + runId + "-" + version + "-"
+                + Integer.toHexString(String.join("|", key).hashCode()) + "\"";
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.coronavirusapi;
+
+import com.example.coronavirusapi.custom_exceptions.InvalidDatasetException;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Enum for the sets of CSSE time series files that can be queried.
+ * Each dataset is loaded into its own store.
+ */
+public enum Dataset {
+    /**
+     * The original {@code time_series_19-covid-*.csv} files,
+     * with US states and counties and recoveries.
+     */
+    LEGACY(EnumSet.allOf(CaseType.class)) {
+        @Override
+        public String fileName(CaseType caseType) {
+            String name = caseType.key();
+            return "time_series_19-covid-"
+                    + Character.toUpperCase(name.charAt(0)) + name.substring(1) + ".csv";
+        }
+    },
+
+    /**
+     * The {@code time_series_covid19_*_global.csv} files,
+     * with one row per country and no recoveries.
+     */
+    GLOBAL(EnumSet.of(CaseType.CONFIRMED, CaseType.DEATHS)) {
+        @Override
+        public String fileName(CaseType caseType) {
+            return "time_series_covid19_" + caseType.key() + "_global.csv";
+        }
+    };
+
+    private final String key = name().toLowerCase();
+    private final Set<CaseType> caseTypes;
+
+    Dataset(Set<CaseType> caseTypes) {
+        this.caseTypes = caseTypes;
+    }
+
+    /**
+     * Returns the lowercase name used for this dataset in requests.
+     */
+    public String key() {
+        return key;
+    }
+
+    /**
+     * Returns the case types this dataset has files for.
+     */
+    public Set<CaseType> caseTypes() {
+        return caseTypes;
+    }
+
+    /**
+     * Returns the name of the time series file holding {@code caseType}.
+     */
+    public abstract String fileName(CaseType caseType);
+
+    /**
+     * Returns the dataset named {@code key} (ignoring case).
+     * @throws InvalidDatasetException if there is no such dataset
+     */
+    public static Dataset fromKey(String key) {
+        for (Dataset dataset : values()) {
+            if (dataset.key.equalsIgnoreCase(key)) {
+                return dataset;
+            }
+        }
+        throw new InvalidDatasetException();
+    }
+}
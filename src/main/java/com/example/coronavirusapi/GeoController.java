@@ -0,0 +1,196 @@
+package com.example.coronavirusapi;
+
+import com.example.coronavirusapi.custom_exceptions.InvalidCoordinatesException;
+import com.example.coronavirusapi.custom_exceptions.InvalidParameterRangeException;
+import com.example.coronavirusapi.store.QueryEngine;
+import com.example.coronavirusapi.store.QueryResult;
+import com.example.coronavirusapi.store.SpatialIndex;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Endpoints that select regions by location rather than by name: every
+ * region inside a bounding box, or the regions nearest to a point.
+ *
+ * Regions are located by the Lat/Long columns of the data files; see
+ * {@link SpatialIndex}. Country and global totals have no location, so
+ * they are never matched and aggregates don't count any case twice.
+ * Results are sent in the {@link ResponseFormat} negotiated from the
+ * Accept header; aggregates are always JSON.
+ */
+@RestController
+public class GeoController {
+    private final DataReloader data;
+
+    // Largest number of regions a nearest-neighbor query may return
+    private static final int MAX_NEAREST = 100;
+
+    public GeoController(DataReloader data) {
+        this.data = data;
+    }
+
+    /**
+     * Returns the entries of every region inside the box bounded by the
+     * {@code south} and {@code north} latitudes and the {@code west} and
+     * {@code east} longitudes. A box whose {@code west} edge is east of its
+     * {@code east} edge crosses the antimeridian.
+     */
+    @GetMapping("/api/geo/within")
+    public ResponseEntity<?> within(
+            @RequestParam(value = "south") double south,
+            @RequestParam(value = "north") double north,
+            @RequestParam(value = "west") double west,
+            @RequestParam(value = "east") double east,
+            @RequestParam(value = "date", defaultValue = QueryEngine.ANY) String date,
+            @RequestParam(value = "from", defaultValue = QueryEngine.ANY) String from,
+            @RequestParam(value = "to", defaultValue = QueryEngine.ANY) String to,
+            @RequestParam(value = "caseType", defaultValue = QueryEngine.ANY) String caseType,
+            @RequestParam(value = "daily", defaultValue = "false") boolean daily,
+            @RequestParam(value = "aggregate", defaultValue = "false") boolean aggregate,
+            @RequestParam(value = "pretty", defaultValue = "false") boolean pretty,
+            @RequestParam(value = "dataset", defaultValue = "legacy") String dataset,
+            WebRequest request) throws HttpMediaTypeNotAcceptableException {
+        int[] range = CoronavirusApiController.checkInputValid(
+                date, from, to, QueryEngine.ANY, QueryEngine.ANY);
+        checkLatitude(south);
+        checkLatitude(north);
+        checkLongitude(west);
+        checkLongitude(east);
+        if (south > north) {
+            throw new InvalidCoordinatesException();
+        }
+        CaseType type = CaseType.fromKey(caseType);
+        Dataset set = Dataset.fromKey(dataset);
+        ResponseFormat format = aggregate
+                ? ResponseFormat.JSON
+                : ResponseFormat.negotiate(request.getHeader(HttpHeaders.ACCEPT));
+
+        DataSnapshot snapshot = data.current();
+        String eTag = snapshot.eTag("within", set.key(), key(type),
+                Integer.toString(range[0]), Integer.toString(range[1]),
+                Double.toString(south), Double.toString(north),
+                Double.toString(west), Double.toString(east),
+                Boolean.toString(daily), Boolean.toString(aggregate), Boolean.toString(pretty),
+                format.key());
+        if (request.checkNotModified(eTag, snapshot.loadedAt())) {
+            return null;
+        }
+
+        QueryEngine engine = snapshot.timeSeries(set);
+        int[] series = engine.spatialIndex().within(south, north, west, east);
+        return respond(engine.query(range[0], range[1], series, type, daily),
+                aggregate, pretty, format, eTag, snapshot);
+    }
+
+    /**
+     * Returns the entries of the {@code k} regions nearest to the point
+     * at {@code lat} and {@code lon}, by great-circle distance, closest
+     * first and with the distance of each; see
+     * {@link QueryResultHttpMessageConverter#write(QueryResult, java.io.OutputStream)}.
+     */
+    @GetMapping("/api/geo/nearest")
+    public ResponseEntity<?> nearest(
+            @RequestParam(value = "lat") double lat,
+            @RequestParam(value = "lon") double lon,
+            @RequestParam(value = "k", defaultValue = "10") int k,
+            @RequestParam(value = "date", defaultValue = QueryEngine.ANY) String date,
+            @RequestParam(value = "from", defaultValue = QueryEngine.ANY) String from,
+            @RequestParam(value = "to", defaultValue = QueryEngine.ANY) String to,
+            @RequestParam(value = "caseType", defaultValue = QueryEngine.ANY) String caseType,
+            @RequestParam(value = "daily", defaultValue = "false") boolean daily,
+            @RequestParam(value = "aggregate", defaultValue = "false") boolean aggregate,
+            @RequestParam(value = "pretty", defaultValue = "false") boolean pretty,
+            @RequestParam(value = "dataset", defaultValue = "legacy") String dataset,
+            WebRequest request) throws HttpMediaTypeNotAcceptableException {
+        int[] range = CoronavirusApiController.checkInputValid(
+                date, from, to, QueryEngine.ANY, QueryEngine.ANY);
+        checkLatitude(lat);
+        checkLongitude(lon);
+        if (k < 1 || k > MAX_NEAREST) {
+            throw new InvalidParameterRangeException("k", 1, MAX_NEAREST);
+        }
+        CaseType type = CaseType.fromKey(caseType);
+        Dataset set = Dataset.fromKey(dataset);
+        ResponseFormat format = aggregate
+                ? ResponseFormat.JSON
+                : ResponseFormat.negotiate(request.getHeader(HttpHeaders.ACCEPT));
+
+        DataSnapshot snapshot = data.current();
+        String eTag = snapshot.eTag("nearest", set.key(), key(type),
+                Integer.toString(range[0]), Integer.toString(range[1]),
+                Double.toString(lat), Double.toString(lon), Integer.toString(k),
+                Boolean.toString(daily), Boolean.toString(aggregate), Boolean.toString(pretty),
+                format.key());
+        if (request.checkNotModified(eTag, snapshot.loadedAt())) {
+            return null;
+        }
+
+        QueryEngine engine = snapshot.timeSeries(set);
+        return respond(engine.nearest(range[0], range[1], lat, lon, k, type, daily),
+                aggregate, pretty, format, eTag, snapshot);
+    }
+
+    /**
+     * Helper method to build the response for {@code result}: the result
+     * itself, or if {@code aggregate} is true, its values summed over all
+     * regions as a {date: {caseType: count}} object.
+     */
+    private static ResponseEntity<?> respond(QueryResult result, boolean aggregate, boolean pretty,
+                                             ResponseFormat format, String eTag,
+                                             DataSnapshot snapshot) {
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+                .eTag(eTag)
+                .lastModified(snapshot.loadedAt())
+                .varyBy(HttpHeaders.ACCEPT);
+        if (!aggregate) {
+            return ok.contentType(format.mediaType()).body(result.prettyPrinted(pretty));
+        }
+
+        Map<String, Map<String, Long>> body = new LinkedHashMap<>();
+        if (!result.isEmpty()) {
+            for (int d = result.fromDayIndex(); d < result.toDayIndex(); d++) {
+                Map<String, Long> totals = new LinkedHashMap<>();
+                for (CaseType caseType : result.caseTypes()) {
+                    long sum = 0;
+                    boolean any = false;
+                    for (int s : result.series()) {
+                        if (result.store().has(s, caseType)) {
+                            sum += result.value(s, caseType, d);
+                            any = true;
+                        }
+                    }
+                    if (any) {
+                        totals.put(caseType.key(), sum);
+                    }
+                }
+                body.put(result.dateKey(d), totals);
+            }
+        }
+        return ok.contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private static void checkLatitude(double latitude) {
+        if (!(latitude >= -90 && latitude <= 90)) {
+            throw new InvalidCoordinatesException();
+        }
+    }
+
+    private static void checkLongitude(double longitude) {
+        if (!(longitude >= -180 && longitude <= 180)) {
+            throw new InvalidCoordinatesException();
+        }
+    }
+
+    private static String key(CaseType caseType) {
+        return (caseType == null) ? "all" : caseType.key();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.coronavirusapi;
+
+import com.example.coronavirusapi.custom_exceptions.InvalidMetricException;
+import com.example.coronavirusapi.store.Analytics;
+import com.example.coronavirusapi.store.TimeSeriesStore;
+
+/**
+ * Enum for the measures regions can be ranked by.
+ */
+public enum Metric {
+    /**
+     * Cumulative count.
+     */
+    TOTAL {
+        @Override
+        public double score(TimeSeriesStore store, int series, CaseType caseType,
+                            int dayIndex, int window) {
+            return store.value(series, caseType, dayIndex);
+        }
+    },
+
+    /**
+     * New cases on the day.
+     */
+    NEW {
+        @Override
+        public double score(TimeSeriesStore store, int series, CaseType caseType,
+                            int dayIndex, int window) {
+            return Analytics.newCases(store, series, caseType, dayIndex);
+        }
+    },
+
+    /**
+     * Moving average of new cases per day over the window.
+     */
+    AVERAGE {
+        @Override
+        public double score(TimeSeriesStore store, int series, CaseType caseType,
+                            int dayIndex, int window) {
+            return Analytics.movingAverage(store, series, caseType, dayIndex, window);
+        }
+    },
+
+    /**
+     * Day-over-day growth rate.
+     */
+    GROWTH {
+        @Override
+        public double score(TimeSeriesStore store, int series, CaseType caseType,
+                            int dayIndex, int window) {
+            return Analytics.growthRate(store, series, caseType, dayIndex);
+        }
+    };
+
+    private final String key = name().toLowerCase();
+
+    /**
+     * Returns the lowercase name used for this metric in requests.
+     */
+    public String key() {
+        return key;
+    }
+
+    /**
+     * Returns the value of this metric for {@code series} on {@code dayIndex},
+     * or NaN if it is undefined.
+     *
+     * @param window window, in days, of windowed metrics
+     */
+    public abstract double score(TimeSeriesStore store, int series, CaseType caseType,
+                                 int dayIndex, int window);
+
+    /**
+     * Returns the metric named {@code key} (ignoring case).
+     * @throws InvalidMetricException if there is no such metric
+     */
+    public static Metric fromKey(String key) {
+        for (Metric metric : values()) {
+            if (metric.key.equalsIgnoreCase(key)) {
+                return metric;
+            }
+        }
+        throw new InvalidMetricException();
+    }
+}
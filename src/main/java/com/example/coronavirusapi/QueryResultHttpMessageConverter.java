@@ -0,0 +1,638 @@
+package com.example.coronavirusapi;
+
+import com.example.coronavirusapi.store.ChangeSet;
+import com.example.coronavirusapi.store.DailyReport;
+import com.example.coronavirusapi.store.QueryEngine;
+import com.example.coronavirusapi.store.QueryResult;
+import com.example.coronavirusapi.store.TimeSeriesStore;
+import com.example.coronavirusapi.store.TrendResult;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes {@link QueryResult}s, {@link TrendResult}s, {@link BatchResult}s,
+ * {@link Changes} and {@link ReportResult}s as JSON straight
+ * from the underlying {@link TimeSeriesStore}, without building
+ * intermediate maps.
+ *
+ * Series are stored sorted by country and state, so objects are written
+ * in key order without sorting. Dates are written in chronological order.
+ *
+ * {@link QueryResult}s can also be written in the other
+ * {@link ResponseFormat}s, chosen by the content type of the response.
+ *
+ * The size of every body streamed to a response is recorded in
+ * {@code registry}.
+ */
+public class QueryResultHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+    // Leading bytes and version of the binary format
+    private static final byte[] BINARY_MAGIC = {'C', 'V', 'T', 'S'};
+    private static final int BINARY_VERSION = 1;
+
+    private final JsonFactory jsonFactory;
+    private final DistributionSummary streamedBytes;
+
+    public QueryResultHttpMessageConverter(JsonFactory jsonFactory, MeterRegistry registry) {
+        super(ResponseFormat.mediaTypes().toArray(new MediaType[0]));
+        this.jsonFactory = jsonFactory;
+        this.streamedBytes = ApiMetrics.responseBytes(registry, "streamed");
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return QueryResult.class.isAssignableFrom(clazz)
+                || TrendResult.class.isAssignableFrom(clazz)
+                || BatchResult.class.isAssignableFrom(clazz)
+                || Changes.class.isAssignableFrom(clazz)
+                || ReportResult.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        // Only query results have other formats than JSON
+        return super.canWrite(clazz, mediaType)
+                && (QueryResult.class.isAssignableFrom(clazz)
+                || mediaType == null
+                || ResponseFormat.of(mediaType) == ResponseFormat.JSON
+                || mediaType.includes(MediaType.APPLICATION_JSON));
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException(
+                clazz.getSimpleName() + " can only be written", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object body, HttpOutputMessage outputMessage)
+            throws IOException {
+        CountingOutputStream out = new CountingOutputStream(outputMessage.getBody());
+        if (body instanceof BatchResult) {
+            write((BatchResult) body, out);
+        } else if (body instanceof Changes) {
+            write((Changes) body, out);
+        } else if (body instanceof ReportResult) {
+            write((ReportResult) body, out);
+        } else if (body instanceof TrendResult) {
+            write((TrendResult) body, out);
+        } else {
+            ResponseFormat format = ResponseFormat.of(outputMessage.getHeaders().getContentType());
+            write((QueryResult) body, (format == null) ? ResponseFormat.JSON : format, out);
+        }
+        streamedBytes.record(out.count);
+    }
+
+    /**
+     * Writes {@code result} to {@code out} in {@code format}.
+     */
+    public void write(QueryResult result, ResponseFormat format, OutputStream out)
+            throws IOException {
+        switch (format) {
+            case COLUMNAR:
+                writeColumnar(result, out);
+                break;
+            case CSV:
+                writeCsv(result, out);
+                break;
+            case BINARY:
+                writeBinary(result, out);
+                break;
+            default:
+                write(result, out);
+        }
+    }
+
+    /**
+     * Writes {@code result} to {@code out} as a
+     * {country: {state: {date: {caseType: count}}}} object.
+     *
+     * A nearest-neighbor result is written closest first as a
+     * [{"country": c, "state": s, "distanceKm": d, "dates": {date:
+     * {caseType: count}}}, ...] array instead, since grouping it by
+     * country would lose its order.
+     */
+    public void write(QueryResult result, OutputStream out) throws IOException {
+        try (JsonGenerator gen = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (result.isPrettyPrinted()) {
+                gen.useDefaultPrettyPrinter();
+            }
+            write(result, gen);
+        }
+    }
+
+    /**
+     * Writes {@code result} to {@code out} as a
+     * {"dates": [date, ...], "series": [{"country": c, "state": s,
+     * caseType: [count, ...], ...}, ...]} object. Each count array is
+     * parallel to the dates array, and only holds the case types the
+     * series has data for. Series of a nearest-neighbor result also carry
+     * their "distanceKm".
+     */
+    public void writeColumnar(QueryResult result, OutputStream out) throws IOException {
+        try (JsonGenerator gen = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (result.isPrettyPrinted()) {
+                gen.useDefaultPrettyPrinter();
+            }
+            TimeSeriesStore store = result.store();
+            int from = result.isEmpty() ? 0 : result.fromDayIndex();
+            int to = result.isEmpty() ? 0 : result.toDayIndex();
+
+            gen.writeStartObject();
+            gen.writeArrayFieldStart("dates");
+            for (int d = from; d < to; d++) {
+                gen.writeString(result.dateKey(d));
+            }
+            gen.writeEndArray();
+            gen.writeArrayFieldStart("series");
+            for (int i = 0; i < result.series().length; i++) {
+                int series = result.series()[i];
+                gen.writeStartObject();
+                gen.writeStringField("country", store.country(series));
+                gen.writeStringField("state", store.state(series));
+                if (result.distances() != null) {
+                    gen.writeNumberField("distanceKm", result.distances()[i]);
+                }
+                for (CaseType t : result.caseTypes()) {
+                    if (store.has(series, t)) {
+                        gen.writeArrayFieldStart(t.key());
+                        for (int d = from; d < to; d++) {
+                            gen.writeNumber(result.value(series, t, d));
+                        }
+                        gen.writeEndArray();
+                    }
+                }
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+    }
+
+    /**
+     * Writes {@code result} to {@code out} as UTF-8 CSV with a
+     * country,state,date,caseType... header and one row per series and
+     * day. Case types the series has no data for are left empty. Rows of
+     * a nearest-neighbor result have a distanceKm column after the state.
+     */
+    public void writeCsv(QueryResult result, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        TimeSeriesStore store = result.store();
+        char[] digits = new char[11];
+
+        double[] distances = result.distances();
+        writer.write((distances == null) ? "country,state,date" : "country,state,distanceKm,date");
+        for (CaseType t : result.caseTypes()) {
+            writer.write(',');
+            writer.write(t.key());
+        }
+        writer.write('\n');
+        for (int i = 0; i < result.series().length; i++) {
+            int series = result.series()[i];
+            // Quote names once per series rather than once per row
+            String region = csvField(store.country(series)) + ',' + csvField(store.state(series)) + ','
+                    + ((distances == null) ? "" : Double.toString(distances[i]) + ',');
+            for (int d = result.fromDayIndex(); d < result.toDayIndex(); d++) {
+                writer.write(region);
+                writer.write(result.dateKey(d));
+                for (CaseType t : result.caseTypes()) {
+                    writer.write(',');
+                    if (store.has(series, t)) {
+                        int start = formatInt(result.value(series, t, d), digits);
+                        writer.write(digits, start, digits.length - start);
+                    }
+                }
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes {@code result} to {@code out} in a compact binary layout.
+     * Integers are unsigned LEB128 varints, and signed ones are zigzag
+     * encoded first; strings are a varint byte length followed by UTF-8.
+     *
+     * <pre>
+     * magic       "CVTS"
+     * version     varint (1)
+     * daily       byte (1 if counts are new cases per day, 0 if cumulative)
+     * dayCount    varint
+     * days        signed varint epoch day of the first day, then
+     *             varint gaps, in days, to each following day
+     * caseTypes   varint count, then each case type's key as a string
+     * seriesCount varint
+     * series      for each series: country string, state string, byte
+     *             with bit i set if the series has the i-th case type,
+     *             then for each of those case types dayCount signed
+     *             varints, each the difference from the previous count
+     *             (the first from zero)
+     * </pre>
+     *
+     * Cumulative counts change slowly from day to day, so most values
+     * take one or two bytes. Series are written in result order, so a
+     * nearest-neighbor result stays closest first, but without distances.
+     */
+    public void writeBinary(QueryResult result, OutputStream out) throws IOException {
+        VarintOutput output = new VarintOutput(out);
+        TimeSeriesStore store = result.store();
+        int from = result.isEmpty() ? 0 : result.fromDayIndex();
+        int to = result.isEmpty() ? 0 : result.toDayIndex();
+        CaseType[] caseTypes = result.caseTypes();
+
+        output.writeBytes(BINARY_MAGIC);
+        output.writeVarint(BINARY_VERSION);
+        output.writeByte(result.isDaily() ? 1 : 0);
+        output.writeVarint(to - from);
+        for (int d = from; d < to; d++) {
+            if (d == from) {
+                output.writeSignedVarint(store.day(d));
+            } else {
+                output.writeVarint(store.day(d) - store.day(d - 1));
+            }
+        }
+        output.writeVarint(caseTypes.length);
+        for (CaseType t : caseTypes) {
+            output.writeString(t.key());
+        }
+
+        output.writeVarint(result.series().length);
+        for (int series : result.series()) {
+            output.writeString(store.country(series));
+            output.writeString(store.state(series));
+            int mask = 0;
+            for (int i = 0; i < caseTypes.length; i++) {
+                mask |= store.has(series, caseTypes[i]) ? 1 << i : 0;
+            }
+            output.writeByte(mask);
+            for (CaseType t : caseTypes) {
+                if (store.has(series, t)) {
+                    int previous = 0;
+                    for (int d = from; d < to; d++) {
+                        int value = result.value(series, t, d);
+                        output.writeSignedVarint(value - previous);
+                        previous = value;
+                    }
+                }
+            }
+        }
+        output.flush();
+    }
+
+    /**
+     * Writes {@code result} to {@code out} as a {country: {state: {date:
+     * {"new": n, "average": a, "growthRate": g, "doublingTime": t}}}}
+     * object. Undefined measures are written as null.
+     */
+    public void write(TrendResult result, OutputStream out) throws IOException {
+        try (JsonGenerator gen = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (result.isPrettyPrinted()) {
+                gen.useDefaultPrettyPrinter();
+            }
+            TimeSeriesStore store = result.store();
+            int country = -1;
+
+            gen.writeStartObject();
+            for (int series : result.series()) {
+                if (store.countryId(series) != country) {
+                    if (country >= 0) {
+                        gen.writeEndObject();
+                    }
+                    country = store.countryId(series);
+                    gen.writeObjectFieldStart(store.country(series));
+                }
+                gen.writeObjectFieldStart(store.state(series));
+                for (int d = result.fromDayIndex(); d < result.toDayIndex(); d++) {
+                    gen.writeObjectFieldStart(result.dateKey(d));
+                    gen.writeNumberField("new", result.newCases(series, d));
+                    writeMeasure(gen, "average", result.movingAverage(series, d));
+                    writeMeasure(gen, "growthRate", result.growthRate(series, d));
+                    writeMeasure(gen, "doublingTime", result.doublingTime(series, d));
+                    gen.writeEndObject();
+                }
+                gen.writeEndObject();
+            }
+            if (country >= 0) {
+                gen.writeEndObject();
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    /**
+     * Writes {@code batch} to {@code out} as an array holding, for each
+     * item, either its result object or an {"error": message} object.
+     */
+    public void write(BatchResult batch, OutputStream out) throws IOException {
+        try (JsonGenerator gen = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (batch.isPrettyPrinted()) {
+                gen.useDefaultPrettyPrinter();
+            }
+            gen.writeStartArray();
+            for (int i = 0; i < batch.size(); i++) {
+                if (batch.error(i) != null) {
+                    gen.writeStartObject();
+                    gen.writeStringField("error", batch.error(i));
+                    gen.writeEndObject();
+                } else {
+                    write(batch.result(i), gen);
+                }
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    /**
+     * Writes {@code changes} to {@code out} as a {"from": versionId,
+     * "to": versionId, "reset": boolean, "changes": [[country, state, date,
+     * caseType, count], ...]} object. Removed cells have a null count;
+     * a reset has no "changes".
+     */
+    public void write(Changes changes, OutputStream out) throws IOException {
+        try (JsonGenerator gen = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (changes.isPrettyPrinted()) {
+                gen.useDefaultPrettyPrinter();
+            }
+            gen.writeStartObject();
+            gen.writeStringField("from", changes.fromVersion());
+            gen.writeStringField("to", changes.toVersion());
+            gen.writeBooleanField("reset", changes.isReset());
+            if (!changes.isReset()) {
+                ChangeSet cells = changes.changes();
+                // Format each date once; changes cover few distinct days
+                Map<Integer, String> dateKeys = new HashMap<>();
+
+                gen.writeArrayFieldStart("changes");
+                for (int i = 0; i < cells.size(); i++) {
+                    gen.writeStartArray();
+                    gen.writeString(cells.country(i));
+                    gen.writeString(cells.state(i));
+                    gen.writeString(dateKeys.computeIfAbsent(cells.day(i), QueryEngine::dateKey));
+                    gen.writeString(cells.caseType(i).key());
+                    if (cells.isRemoved(i)) {
+                        gen.writeNull();
+                    } else {
+                        gen.writeNumber(cells.value(i));
+                    }
+                    gen.writeEndArray();
+                }
+                gen.writeEndArray();
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    /**
+     * Writes {@code result} to {@code out} as a {country: {state:
+     * {"lastUpdate": time, caseType: count, ..., "latitude": lat,
+     * "longitude": lon}}} object. Whole-country rows are written under the
+     * country's name; missing counts, times and coordinates are omitted.
+     */
+    public void write(ReportResult result, OutputStream out) throws IOException {
+        try (JsonGenerator gen = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (result.isPrettyPrinted()) {
+                gen.useDefaultPrettyPrinter();
+            }
+            DailyReport report = result.report();
+            String country = null;
+
+            gen.writeStartObject();
+            for (int row : result.rows()) {
+                // Rows of a country are contiguous
+                if (!report.country(row).equals(country)) {
+                    if (country != null) {
+                        gen.writeEndObject();
+                    }
+                    country = report.country(row);
+                    gen.writeObjectFieldStart(country);
+                }
+                gen.writeObjectFieldStart(report.displayState(row));
+                if (report.lastUpdate(row) != DailyReport.NO_UPDATE) {
+                    gen.writeStringField("lastUpdate",
+                            Instant.ofEpochSecond(report.lastUpdate(row)).toString());
+                }
+                for (CaseType t : CaseType.values()) {
+                    if (report.has(row, t)) {
+                        gen.writeNumberField(t.key(), report.value(row, t));
+                    }
+                }
+                if (report.hasLocation(row)) {
+                    gen.writeNumberField("latitude", report.latitude(row));
+                    gen.writeNumberField("longitude", report.longitude(row));
+                }
+                gen.writeEndObject();
+            }
+            if (country != null) {
+                gen.writeEndObject();
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    private static void write(QueryResult result, JsonGenerator gen) throws IOException {
+        if (result.distances() != null) {
+            writeNearest(result, gen);
+            return;
+        }
+        TimeSeriesStore store = result.store();
+        int country = -1;
+
+        gen.writeStartObject();
+        for (int series : result.series()) {
+            // Series of a country are contiguous, so only open a
+            // new country object when the country changes
+            if (store.countryId(series) != country) {
+                if (country >= 0) {
+                    gen.writeEndObject();
+                }
+                country = store.countryId(series);
+                gen.writeObjectFieldStart(store.country(series));
+            }
+            gen.writeObjectFieldStart(store.state(series));
+            writeDates(result, series, gen);
+            gen.writeEndObject();
+        }
+        if (country >= 0) {
+            gen.writeEndObject();
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeNearest(QueryResult result, JsonGenerator gen) throws IOException {
+        TimeSeriesStore store = result.store();
+        gen.writeStartArray();
+        for (int i = 0; i < result.series().length; i++) {
+            int series = result.series()[i];
+            gen.writeStartObject();
+            gen.writeStringField("country", store.country(series));
+            gen.writeStringField("state", store.state(series));
+            gen.writeNumberField("distanceKm", result.distances()[i]);
+            gen.writeObjectFieldStart("dates");
+            writeDates(result, series, gen);
+            gen.writeEndObject();
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+    }
+
+    /**
+     * Writes the {date: {caseType: count}} fields of {@code series}.
+     */
+    private static void writeDates(QueryResult result, int series, JsonGenerator gen)
+            throws IOException {
+        TimeSeriesStore store = result.store();
+        for (int d = result.fromDayIndex(); d < result.toDayIndex(); d++) {
+            gen.writeObjectFieldStart(result.dateKey(d));
+            for (CaseType t : result.caseTypes()) {
+                if (store.has(series, t)) {
+                    gen.writeNumberField(t.key(), result.value(series, t, d));
+                }
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    private static void writeMeasure(JsonGenerator gen, String name, double value)
+            throws IOException {
+        if (Double.isNaN(value)) {
+            gen.writeNullField(name);
+        } else {
+            gen.writeNumberField(name, value);
+        }
+    }
+
+    /**
+     * Returns {@code field}, quoted if it holds a comma, quote or line break.
+     */
+    private static String csvField(String field) {
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + field.replace("\"", "\"\"") + '"';
+            }
+        }
+        return field;
+    }
+
+    /**
+     * Writes the decimal digits of {@code value} to the end of
+     * {@code digits}, which must hold at least 11 chars.
+     *
+     * @return index of the first written char
+     */
+    private static int formatInt(int value, char[] digits) {
+        int i = digits.length;
+        long v = Math.abs((long) value);
+        do {
+            digits[--i] = (char) ('0' + v % 10);
+            v /= 10;
+        } while (v != 0);
+        if (value < 0) {
+            digits[--i] = '-';
+        }
+        return i;
+    }
+
+    /**
+     * Buffers the varints and strings of the binary format. The response
+     * stream is written in buffer-sized chunks rather than byte by byte.
+     */
+    private static final class VarintOutput {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[8192];
+        private int size;
+
+        VarintOutput(OutputStream out) {
+            this.out = out;
+        }
+
+        void writeByte(int b) throws IOException {
+            if (size == buffer.length) {
+                flush();
+            }
+            buffer[size++] = (byte) b;
+        }
+
+        void writeBytes(byte[] bytes) throws IOException {
+            for (byte b : bytes) {
+                writeByte(b);
+            }
+        }
+
+        void writeVarint(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        void writeSignedVarint(int value) throws IOException {
+            writeVarint((value << 1) ^ (value >> 31));
+        }
+
+        void writeString(String s) throws IOException {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            writeBytes(bytes);
+        }
+
+        void flush() throws IOException {
+            out.write(buffer, 0, size);
+            size = 0;
+        }
+    }
+
+    /**
+     * Counts the bytes written through it. The generator writes in
+     * buffer-sized chunks, so counting doesn't add per-value work.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
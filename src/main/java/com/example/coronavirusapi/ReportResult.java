@@ -0,0 +1,34 @@
+package com.example.coronavirusapi;
+
+import com.example.coronavirusapi.store.DailyReport;
+
+/**
+ * Rows of a {@link DailyReport} matched by a query.
+ */
+public final class ReportResult {
+    private final DailyReport report;
+    private final int[] rows;
+    private final boolean pretty;
+
+    public ReportResult(DailyReport report, int[] rows, boolean pretty) {
+        this.report = report;
+        this.rows = rows;
+        this.pretty = pretty;
+    }
+
+    public DailyReport report() {
+        return report;
+    }
+
+    /**
+     * Returns the matched rows, in ascending order.
+     * The returned array is shared and must not be modified.
+     */
+    public int[] rows() {
+        return rows;
+    }
+
+    public boolean isPrettyPrinted() {
+        return pretty;
+    }
+}
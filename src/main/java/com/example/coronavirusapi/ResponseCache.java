@@ -0,0 +1,197 @@
+package com.example.coronavirusapi;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bounded LRU cache of encoded responses, keyed by normalized request.
+ *
+ * Each entry holds both the plain and the gzipped bytes of a response,
+ * in whichever {@link ResponseFormat} it was encoded.
+ * Eviction is by total size in bytes rather than by entry count.
+ *
+ * Keys are spread over up to {@code MAX_SEGMENTS} segments, each an LRU
+ * cache with its own lock and an equal share of the size bound, so hits
+ * on different keys don't contend for one lock. The cache is split only
+ * as far as every segment still holds a few of the largest entries.
+ * Entries belong to one data version; a segment is cleared as soon as
+ * an entry for a newer version is requested from or stored in it.
+ */
+@Component
+public class ResponseCache {
+    // Approximate per-entry overhead of the key, entry and map node
+    private static final int ENTRY_OVERHEAD = 128;
+
+    static final int MAX_SEGMENTS = 16;
+    // Fewest largest entries a segment must be able to hold
+    private static final int MIN_ENTRIES_PER_SEGMENT = 4;
+
+    private final int maxEntryBytes;
+    private final Segment[] segments;
+
+    public ResponseCache(
+            @Value("${coronavirus.cache.max-bytes}") long maxBytes,
+            @Value("${coronavirus.cache.max-entry-bytes}") int maxEntryBytes) {
+        this.maxEntryBytes = maxEntryBytes;
+        long fit = maxBytes / Math.max(1L, (long) MIN_ENTRIES_PER_SEGMENT * maxEntryBytes);
+        // A power of two, so a segment is picked by masking the hash
+        int count = Integer.highestOneBit((int) Math.max(1, Math.min(MAX_SEGMENTS, fit)));
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(maxBytes / count);
+        }
+    }
+
+    /**
+     * Returns the largest response, in bytes, that may be cached.
+     */
+    public int maxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    /**
+     * Returns the entry cached for {@code key} at data version
+     * {@code version}, or null if there is none.
+     */
+    public Entry get(String key, long version) {
+        return segmentFor(key).get(key, version);
+    }
+
+    /**
+     * Encodes {@code body} into an entry and caches it under {@code key},
+     * unless it is larger than {@link #maxEntryBytes()} or belongs to an
+     * older data version than the cache. Bodies too large to cache aren't
+     * compressed.
+     *
+     * @return the new entry, whether or not it was cached
+     */
+    public Entry put(String key, long version, byte[] body) {
+        if (body.length > maxEntryBytes) {
+            return new Entry(body, null);
+        }
+        Entry entry = new Entry(body, gzip(body));
+        segmentFor(key).put(key, version, entry);
+        return entry;
+    }
+
+    public long size() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.size();
+        }
+        return bytes;
+    }
+
+    int segmentCount() {
+        return segments.length;
+    }
+
+    private Segment segmentFor(String key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(bytes);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            // In-memory streams don't throw
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Pre-encoded response body.
+     */
+    public static final class Entry {
+        private final byte[] body;
+        private final byte[] gzip;
+
+        private Entry(byte[] body, byte[] gzip) {
+            this.body = body;
+            this.gzip = gzip;
+        }
+
+        /**
+         * Returns the uncompressed body.
+         * The returned array is shared and must not be modified.
+         */
+        public byte[] body() {
+            return body;
+        }
+
+        /**
+         * Returns the gzip-compressed body, or null if the body was too
+         * large to cache and so wasn't compressed.
+         * The returned array is shared and must not be modified.
+         */
+        public byte[] gzip() {
+            return gzip;
+        }
+
+        long size() {
+            return body.length + gzip.length + ENTRY_OVERHEAD;
+        }
+    }
+
+    /**
+     * One LRU share of the cache.
+     */
+    private static final class Segment {
+        private final long maxBytes;
+
+        private final LinkedHashMap<String, Entry> entries =
+                new LinkedHashMap<>(16, 0.75f, true);
+        private long version;
+        private long bytes;
+
+        Segment(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized Entry get(String key, long version) {
+            invalidateBefore(version);
+            return (version == this.version) ? entries.get(key) : null;
+        }
+
+        synchronized void put(String key, long version, Entry entry) {
+            invalidateBefore(version);
+            if (version == this.version) {
+                Entry old = entries.put(key, entry);
+                bytes += entry.size() - ((old == null) ? 0 : old.size());
+                evict();
+            }
+        }
+
+        synchronized long size() {
+            return bytes;
+        }
+
+        private void invalidateBefore(long version) {
+            if (version > this.version) {
+                entries.clear();
+                bytes = 0;
+                this.version = version;
+            }
+        }
+
+        private void evict() {
+            Iterator<Entry> it = entries.values().iterator();
+            while (bytes > maxBytes && it.hasNext()) {
+                bytes -= it.next().size();
+                it.remove();
+            }
+        }
+    }
+}
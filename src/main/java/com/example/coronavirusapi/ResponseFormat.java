@@ -0,0 +1,115 @@
+package com.example.coronavirusapi;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Enum for the encodings a query result can be sent in, chosen by the
+ * request's Accept header. See {@link QueryResultHttpMessageConverter}
+ * for the layout of each encoding.
+ */
+public enum ResponseFormat {
+    /**
+     * Nested {country: {state: {date: {caseType: count}}}} object.
+     */
+    JSON(MediaType.APPLICATION_JSON),
+
+    /**
+     * {"dates": [...], "series": [...]} object holding the date axis once
+     * and one array of counts per series and case type.
+     */
+    COLUMNAR(new MediaType("application", "vnd.coronavirus.columnar+json")),
+
+    /**
+     * UTF-8 CSV with one country,state,date,caseType... row per series
+     * and day.
+     */
+    CSV(new MediaType("text", "csv", StandardCharsets.UTF_8)),
+
+    /**
+     * Delta-encoded binary columns.
+     */
+    BINARY(new MediaType("application", "vnd.coronavirus.timeseries"));
+
+    private final String key = name().toLowerCase();
+    private final MediaType mediaType;
+
+    ResponseFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    /**
+     * Returns the lowercase name used for this format in cache keys.
+     */
+    public String key() {
+        return key;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Returns the media types of all formats, in order of preference.
+     */
+    public static List<MediaType> mediaTypes() {
+        List<MediaType> mediaTypes = new ArrayList<>();
+        for (ResponseFormat format : values()) {
+            mediaTypes.add(format.mediaType);
+        }
+        return mediaTypes;
+    }
+
+    /**
+     * Returns the format whose media type is {@code mediaType} (ignoring
+     * parameters such as the charset), or null if there is none.
+     */
+    public static ResponseFormat of(MediaType mediaType) {
+        if (mediaType == null) {
+            return null;
+        }
+        for (ResponseFormat format : values()) {
+            if (format.mediaType.equalsTypeAndSubtype(mediaType)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the format to answer a request with the given Accept header:
+     * the client's most preferred format, or JSON if the header is missing
+     * or accepts anything.
+     * @throws HttpMediaTypeNotAcceptableException if the header accepts
+     *      none of the formats
+     */
+    public static ResponseFormat negotiate(String accept)
+            throws HttpMediaTypeNotAcceptableException {
+        if (accept == null || accept.isEmpty()) {
+            return JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (IllegalArgumentException e) {
+            throw new HttpMediaTypeNotAcceptableException(
+                    "Could not parse Accept header: " + e.getMessage());
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType mediaType : accepted) {
+            if (mediaType.getQualityValue() == 0) {
+                continue;
+            }
+            for (ResponseFormat format : values()) {
+                if (mediaType.includes(format.mediaType)) {
+                    return format;
+                }
+            }
+        }
+        throw new HttpMediaTypeNotAcceptableException(mediaTypes());
+    }
+}
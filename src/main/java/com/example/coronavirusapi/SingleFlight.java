@@ -0,0 +1,70 @@
+package com.example.coronavirusapi;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent computations of the same key.
+ *
+ * The first caller for a key runs the computation; callers arriving
+ * while it is in flight wait for it and receive the same value (or the
+ * same exception). Nothing is kept once the computation finishes, so a
+ * later caller computes again.
+ *
+ * In-flight computations are tracked in a {@link ConcurrentHashMap},
+ * so callers for different keys don't contend with each other.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Returns the value of {@code computation}, run by this caller or by
+     * a concurrent caller for the same {@code key}.
+     *
+     * @param computation computation to run if none is in flight for
+     *                    {@code key}; may throw unchecked exceptions only
+     */
+    public V execute(K key, Supplier<V> computation) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            return join(running);
+        }
+        try {
+            V value = computation.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Returns the number of computations currently in flight.
+     */
+    public int size() {
+        return inFlight.size();
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // Rethrow what the computation threw
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
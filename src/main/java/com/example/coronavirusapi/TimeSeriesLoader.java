@@ -0,0 +1,217 @@
+package com.example.coronavirusapi;
+
+import com.example.coronavirusapi.store.TimeSeriesCsvParser;
+import com.example.coronavirusapi.store.TimeSeriesStore;
+import com.example.coronavirusapi.store.TimeSeriesStoreFile;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads the time series CSV files under a data location
+ * (a copy of the {@code csse_covid_19_data} directory)
+ * into one {@link TimeSeriesStore} per {@link Dataset}.
+ *
+ * All files are parsed concurrently on the common fork-join pool.
+ *
+ * If a snapshot directory is configured, each built store is also
+ * compiled into a {@link TimeSeriesStoreFile} there. Later loads map
+ * that file instead of parsing the CSV files, as long as the CSV files'
+ * sizes and modification times haven't changed.
+ *
+ * The time spent in each phase of a load (reading snapshot files,
+ * parsing each CSV file, building stores and writing snapshot files)
+ * is recorded per dataset in {@code registry}.
+ */
+public class TimeSeriesLoader {
+    private static final Logger log = LoggerFactory.getLogger(TimeSeriesLoader.class);
+
+    /**
+     * Directory of the time series files, relative to the data location.
+     */
+    public static final String TIME_SERIES_DIR = "csse_covid_19_time_series/";
+
+    private final ResourceLoader resourceLoader;
+    private final String location;
+    private final Path snapshotDir;
+    private final MeterRegistry registry;
+
+    /**
+     * @param location    Spring resource location of the data directory,
+     *                    ending with a slash (e.g. "classpath:csse_covid_19_data/")
+     * @param snapshotDir directory for compiled store files, or null to
+     *                    always parse the CSV files
+     * @param registry    registry to record load timings in
+     */
+    public TimeSeriesLoader(ResourceLoader resourceLoader, String location, Path snapshotDir,
+                            MeterRegistry registry) {
+        this.resourceLoader = resourceLoader;
+        this.location = location;
+        this.snapshotDir = snapshotDir;
+        this.registry = registry;
+    }
+
+    /**
+     * Loads every dataset. Missing files are skipped with a warning.
+     *
+     * @throws UncheckedIOException     if a file can't be read
+     * @throws IllegalArgumentException if a file is malformed
+     */
+    public Map<Dataset, TimeSeriesStore> load() {
+        Map<Dataset, TimeSeriesStore> stores = new EnumMap<>(Dataset.class);
+        Map<Dataset, Long> fingerprints = new EnumMap<>(Dataset.class);
+        for (Dataset dataset : Dataset.values()) {
+            long fingerprint = fingerprint(dataset);
+            TimeSeriesStore store = readSnapshot(dataset, fingerprint);
+            if (store != null) {
+                stores.put(dataset, store);
+            } else {
+                fingerprints.put(dataset, fingerprint);
+            }
+        }
+
+        // Start parsing every remaining file before building any store
+        Map<Dataset, Map<CaseType, ForkJoinTask<TimeSeriesCsvParser.ParsedFile>>> tasks =
+                new EnumMap<>(Dataset.class);
+        for (Dataset dataset : fingerprints.keySet()) {
+            Map<CaseType, ForkJoinTask<TimeSeriesCsvParser.ParsedFile>> files =
+                    new EnumMap<>(CaseType.class);
+            for (CaseType caseType : dataset.caseTypes()) {
+                String path = TIME_SERIES_DIR + dataset.fileName(caseType);
+                Timer timer = phaseTimer("parse", dataset);
+                files.put(caseType, ForkJoinPool.commonPool().submit(() ->
+                        timer.recordCallable(() -> parseCsvResource(path))));
+            }
+            tasks.put(dataset, files);
+        }
+
+        tasks.forEach((dataset, files) -> {
+            Map<CaseType, TimeSeriesCsvParser.ParsedFile> parsed = new EnumMap<>(CaseType.class);
+            files.forEach((caseType, task) -> parsed.put(caseType, task.join()));
+
+            long start = System.nanoTime();
+            TimeSeriesStore.Builder builder = new TimeSeriesStore.Builder();
+            parsed.forEach((caseType, file) -> {
+                if (file == null) {
+                    return;
+                }
+                for (int row = 0; row < file.rowCount(); row++) {
+                    builder.add(file.country(row), file.state(row), caseType,
+                            file.days(), file.values(row));
+                    builder.locate(file.country(row), file.state(row),
+                            file.latitude(row), file.longitude(row));
+                }
+            });
+            TimeSeriesStore store = builder.build();
+            phaseTimer("build", dataset).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            writeSnapshot(dataset, fingerprints.get(dataset), store);
+            stores.put(dataset, store);
+        });
+        return stores;
+    }
+
+    /**
+     * Returns a fingerprint of the CSV files of {@code dataset},
+     * computed from their names, sizes and modification times.
+     */
+    private long fingerprint(Dataset dataset) {
+        long fingerprint = 17;
+        for (CaseType caseType : dataset.caseTypes()) {
+            Resource resource = resourceLoader.getResource(
+                    location + TIME_SERIES_DIR + dataset.fileName(caseType));
+            long length = -1;
+            long lastModified = -1;
+            try {
+                if (resource.exists()) {
+                    length = resource.contentLength();
+                    lastModified = resource.lastModified();
+                }
+            } catch (IOException e) {
+                // Fall through; the parse will report the error
+            }
+            fingerprint = 31 * fingerprint + resource.getDescription().hashCode();
+            fingerprint = 31 * fingerprint + length;
+            fingerprint = 31 * fingerprint + lastModified;
+        }
+        return fingerprint;
+    }
+
+    private TimeSeriesStore readSnapshot(Dataset dataset, long fingerprint) {
+        if (snapshotDir == null) {
+            return null;
+        }
+        Path path = snapshotFile(dataset);
+        long start = System.nanoTime();
+        try {
+            TimeSeriesStore store = TimeSeriesStoreFile.read(path, fingerprint);
+            phaseTimer("snapshot-read", dataset)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (store != null) {
+                log.info("Loaded dataset {} from {}", dataset.key(), path);
+            }
+            return store;
+        } catch (IOException e) {
+            log.warn("Failed to read " + path + ", loading CSV files instead", e);
+            return null;
+        }
+    }
+
+    private void writeSnapshot(Dataset dataset, long fingerprint, TimeSeriesStore store) {
+        if (snapshotDir == null) {
+            return;
+        }
+        Path path = snapshotFile(dataset);
+        long start = System.nanoTime();
+        try {
+            TimeSeriesStoreFile.write(store, fingerprint, path);
+            phaseTimer("snapshot-write", dataset)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } catch (IOException e) {
+            log.warn("Failed to write " + path, e);
+        }
+    }
+
+    private Timer phaseTimer(String phase, Dataset dataset) {
+        return Timer.builder("coronavirus.data.load.phase")
+                .description("Time spent in one phase of loading a dataset")
+                .tag("phase", phase)
+                .tag("dataset", dataset.key())
+                .register(registry);
+    }
+
+    private Path snapshotFile(Dataset dataset) {
+        return snapshotDir.resolve(dataset.key() + ".tss");
+    }
+
+    /**
+     * Parses the CSV file at {@code path}, or returns null if it doesn't exist.
+     */
+    private TimeSeriesCsvParser.ParsedFile parseCsvResource(String path) {
+        Resource resource = resourceLoader.getResource(location + path);
+        if (!resource.exists()) {
+            log.warn("Time series file {} not found", resource.getDescription());
+            return null;
+        }
+        try (InputStream in = resource.getInputStream()) {
+            return TimeSeriesCsvParser.parse(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + resource.getDescription(), e);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(
+                    "Failed to parse " + resource.getDescription() + ": " + e.getMessage(), e);
+        }
+    }
+}
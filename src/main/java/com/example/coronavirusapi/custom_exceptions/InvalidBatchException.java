@@ -0,0 +1,7 @@
+package com.example.coronavirusapi.custom_exceptions;
+
+public class InvalidBatchException extends IllegalArgumentException {
+    public InvalidBatchException(int maxSize) {
+        super("A batch request must hold between 1 and " + maxSize + " selectors.");
+    }
+}
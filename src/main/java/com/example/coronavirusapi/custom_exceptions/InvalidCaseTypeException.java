@@ -0,0 +1,7 @@
+package com.example.coronavirusapi.custom_exceptions;
+
+public class InvalidCaseTypeException extends IllegalArgumentException {
+    public InvalidCaseTypeException() {
+        super("The `caseType` must be 'confirmed', 'deaths', 'recovered' or empty.");
+    }
+}
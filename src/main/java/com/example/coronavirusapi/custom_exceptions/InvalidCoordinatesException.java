@@ -0,0 +1,8 @@
+package com.example.coronavirusapi.custom_exceptions;
+
+public class InvalidCoordinatesException extends IllegalArgumentException {
+    public InvalidCoordinatesException() {
+        super("Coordinates must be latitudes between -90 and 90 (south before north) "
+                + "and longitudes between -180 and 180.");
+    }
+}
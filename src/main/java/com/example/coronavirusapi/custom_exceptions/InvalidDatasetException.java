@@ -0,0 +1,7 @@
+package com.example.coronavirusapi.custom_exceptions;
+
+public class InvalidDatasetException extends IllegalArgumentException {
+    public InvalidDatasetException() {
+        super("The `dataset` request parameter must be 'legacy' or 'global'.");
+    }
+}
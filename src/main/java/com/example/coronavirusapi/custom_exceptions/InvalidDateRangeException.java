@@ -0,0 +1,7 @@
+package com.example.coronavirusapi.custom_exceptions;
+
+public class InvalidDateRangeException extends IllegalArgumentException {
+    public InvalidDateRangeException(String reason) {
+        super("Invalid date range: " + reason);
+    }
+}
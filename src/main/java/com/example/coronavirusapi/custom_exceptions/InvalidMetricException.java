@@ -0,0 +1,7 @@
+package com.example.coronavirusapi.custom_exceptions;
+
+public class InvalidMetricException extends IllegalArgumentException {
+    public InvalidMetricException() {
+        super("The `metric` must be 'total', 'new', 'average' or 'growth'.");
+    }
+}
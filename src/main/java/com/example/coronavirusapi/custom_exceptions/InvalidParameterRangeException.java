@@ -0,0 +1,7 @@
+package com.example.coronavirusapi.custom_exceptions;
+
+public class InvalidParameterRangeException extends IllegalArgumentException {
+    public InvalidParameterRangeException(String name, int min, int max) {
+        super("The `" + name + "` request parameter must be between " + min + " and " + max + ".");
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.coronavirusapi.custom_exceptions;
+
+public class InvalidSelectorException extends IllegalArgumentException {
+    public InvalidSelectorException() {
+        super("A batch item must be a selector object, not null.");
+    }
+}
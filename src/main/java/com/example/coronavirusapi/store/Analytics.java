@@ -0,0 +1,158 @@
+package com.example.coronavirusapi.store;
+
+import com.example.coronavirusapi.CaseType;
+
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Measures derived from the cumulative columns of a {@link TimeSeriesStore}.
+ *
+ * A cumulative column is the prefix sum of its daily new cases, so every
+ * windowed measure costs O(1) per day, whatever the window; nothing needs
+ * to be precomputed. Measures that are undefined for a day (e.g. growth
+ * from zero cases) are NaN.
+ */
+public final class Analytics {
+    /**
+     * Default window, in days, of moving averages and doubling times.
+     */
+    public static final int DEFAULT_WINDOW = 7;
+
+    private static final double LN_2 = Math.log(2);
+
+    private Analytics() {
+    }
+
+    /**
+     * Returns the number of new cases on {@code dayIndex}.
+     */
+    public static int newCases(TimeSeriesStore store, int series, CaseType caseType,
+                               int dayIndex) {
+        return store.newCases(series, caseType, dayIndex, dayIndex + 1);
+    }
+
+    /**
+     * Returns the average number of new cases per day over the
+     * {@code window} days ending with {@code dayIndex}, or over
+     * fewer days at the start of the date axis.
+     */
+    public static double movingAverage(TimeSeriesStore store, int series, CaseType caseType,
+                                       int dayIndex, int window) {
+        int from = Math.max(0, dayIndex - window + 1);
+        return store.newCases(series, caseType, from, dayIndex + 1)
+                / (double) (dayIndex + 1 - from);
+    }
+
+    /**
+     * Returns the day-over-day growth rate of the cumulative count on
+     * {@code dayIndex} (0.1 for 10% growth), or NaN if the previous day
+     * had no cases.
+     */
+    public static double growthRate(TimeSeriesStore store, int series, CaseType caseType,
+                                    int dayIndex) {
+        if (dayIndex == 0) {
+            return Double.NaN;
+        }
+        int previous = store.value(series, caseType, dayIndex - 1);
+        return (previous <= 0)
+                ? Double.NaN
+                : (store.value(series, caseType, dayIndex) - previous) / (double) previous;
+    }
+
+    /**
+     * Returns the number of days the cumulative count takes to double,
+     * assuming the growth over the {@code window} days ending with
+     * {@code dayIndex} continues, or NaN if it didn't grow.
+     */
+    public static double doublingTime(TimeSeriesStore store, int series, CaseType caseType,
+                                      int dayIndex, int window) {
+        if (dayIndex < window) {
+            return Double.NaN;
+        }
+        int before = store.value(series, caseType, dayIndex - window);
+        int now = store.value(series, caseType, dayIndex);
+        return (before <= 0 || now <= before)
+                ? Double.NaN
+                : window * LN_2 / Math.log(now / (double) before);
+    }
+
+    /**
+     * Returns the (at most) {@code n} of {@code series} with the highest
+     * scores, highest first. Series scoring NaN are skipped, and ties are
+     * broken by ascending series ID.
+     *
+     * Candidates are kept in a bounded min-heap of size {@code n}, so this
+     * costs O(series log n) and allocates only the heap.
+     */
+    public static int[] top(int[] series, int n, IntToDoubleFunction score) {
+        int[] heap = new int[Math.min(n, series.length)];
+        double[] scores = new double[heap.length];
+        int size = 0;
+        for (int s : series) {
+            double value = score.applyAsDouble(s);
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            if (size < heap.length) {
+                heap[size] = s;
+                scores[size] = value;
+                siftUp(heap, scores, size++);
+            } else if (size > 0 && ranksAbove(value, s, scores[0], heap[0])) {
+                heap[0] = s;
+                scores[0] = value;
+                siftDown(heap, scores, 0, size);
+            }
+        }
+
+        // Pop the lowest-ranked candidate to the end until the heap is empty
+        int[] ranked = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            ranked[i] = heap[0];
+            heap[0] = heap[i];
+            scores[0] = scores[i];
+            siftDown(heap, scores, 0, i);
+        }
+        return ranked;
+    }
+
+    private static boolean ranksAbove(double score, int series,
+                                      double otherScore, int otherSeries) {
+        return (score != otherScore) ? score > otherScore : series < otherSeries;
+    }
+
+    private static void siftUp(int[] heap, double[] scores, int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!ranksAbove(scores[parent], heap[parent], scores[i], heap[i])) {
+                break;
+            }
+            swap(heap, scores, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, double[] scores, int i, int size) {
+        while (true) {
+            int lowest = i;
+            for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                if (ranksAbove(scores[lowest], heap[lowest], scores[child], heap[child])) {
+                    lowest = child;
+                }
+            }
+            if (lowest == i) {
+                return;
+            }
+            swap(heap, scores, i, lowest);
+            i = lowest;
+        }
+    }
+
+    private static void swap(int[] heap, double[] scores, int i, int j) {
+        int s = heap[i];
+        heap[i] = heap[j];
+        heap[j] = s;
+        double score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+}
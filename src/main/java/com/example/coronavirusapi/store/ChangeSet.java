@@ -0,0 +1,177 @@
+package com.example.coronavirusapi.store;
+
+import com.example.coronavirusapi.CaseType;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cells (country, state, day, case type) that differ between two stores:
+ * cells that were added or whose value changed, and cells that were
+ * removed.
+ *
+ * Cells are held in parallel arrays, in the order of the newer store's
+ * series, then case type, then day; removed cells follow in the order of
+ * the older store. Values are cumulative counts, so applying a change set
+ * twice has the same effect as applying it once.
+ */
+public final class ChangeSet {
+    private static final CaseType[] CASE_TYPES = CaseType.values();
+
+    private String[] countries = new String[16];
+    private String[] states = new String[16];
+    private int[] days = new int[16];
+    private byte[] caseTypes = new byte[16];
+    private int[] values = new int[16];
+    private final BitSet removed = new BitSet();
+    private int size;
+
+    private ChangeSet() {
+    }
+
+    /**
+     * Returns the cells of {@code after} that are not in {@code before} or
+     * have a different value there, followed by the cells of
+     * {@code before} that are not in {@code after}. Series are matched
+     * by country and state, ignoring case, and days by date.
+     */
+    public static ChangeSet between(TimeSeriesStore before, TimeSeriesStore after) {
+        ChangeSet changes = new ChangeSet();
+        int[] beforeDayIndex = dayIndexes(after, before);
+        for (int s = 0; s < after.seriesCount(); s++) {
+            int b = before.findSeries(after.country(s), after.state(s));
+            for (CaseType t : CASE_TYPES) {
+                if (!after.has(s, t)) {
+                    continue;
+                }
+                boolean had = b >= 0 && before.has(b, t);
+                for (int d = 0; d < after.dayCount(); d++) {
+                    int value = after.value(s, t, d);
+                    int bd = beforeDayIndex[d];
+                    if (!had || bd < 0 || before.value(b, t, bd) != value) {
+                        changes.add(after.country(s), after.state(s), after.day(d), t, value, false);
+                    }
+                }
+            }
+        }
+
+        int[] afterDayIndex = dayIndexes(before, after);
+        for (int s = 0; s < before.seriesCount(); s++) {
+            int a = after.findSeries(before.country(s), before.state(s));
+            for (CaseType t : CASE_TYPES) {
+                if (!before.has(s, t)) {
+                    continue;
+                }
+                boolean has = a >= 0 && after.has(a, t);
+                for (int d = 0; d < before.dayCount(); d++) {
+                    if (!has || afterDayIndex[d] < 0) {
+                        changes.add(before.country(s), before.state(s), before.day(d), t, 0, true);
+                    }
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Returns the combined effect of applying {@code changeSets} in order:
+     * every changed cell once, with its last value.
+     */
+    public static ChangeSet merge(List<ChangeSet> changeSets) {
+        if (changeSets.size() == 1) {
+            return changeSets.get(0);
+        }
+        ChangeSet merged = new ChangeSet();
+        Map<String, Integer> cells = new HashMap<>();
+        for (ChangeSet changes : changeSets) {
+            for (int i = 0; i < changes.size; i++) {
+                String key = changes.countries[i] + '\0' + changes.states[i] + '\0'
+                        + changes.days[i] + '\0' + changes.caseTypes[i];
+                Integer cell = cells.putIfAbsent(key, merged.size);
+                if (cell == null) {
+                    merged.add(changes.countries[i], changes.states[i], changes.days[i],
+                            changes.caseType(i), changes.values[i], changes.isRemoved(i));
+                } else {
+                    merged.values[cell] = changes.values[i];
+                    merged.removed.set(cell, changes.isRemoved(i));
+                }
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Returns a change set without changes.
+     */
+    public static ChangeSet empty() {
+        return new ChangeSet();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String country(int cell) {
+        return countries[cell];
+    }
+
+    public String state(int cell) {
+        return states[cell];
+    }
+
+    /**
+     * Returns the epoch day of {@code cell}.
+     */
+    public int day(int cell) {
+        return days[cell];
+    }
+
+    public CaseType caseType(int cell) {
+        return CASE_TYPES[caseTypes[cell]];
+    }
+
+    /**
+     * Returns the new value of {@code cell}, or 0 if it was removed.
+     */
+    public int value(int cell) {
+        return values[cell];
+    }
+
+    public boolean isRemoved(int cell) {
+        return removed.get(cell);
+    }
+
+    private void add(String country, String state, int day, CaseType caseType,
+                     int value, boolean isRemoved) {
+        if (size == days.length) {
+            int capacity = size * 2;
+            countries = Arrays.copyOf(countries, capacity);
+            states = Arrays.copyOf(states, capacity);
+            days = Arrays.copyOf(days, capacity);
+            caseTypes = Arrays.copyOf(caseTypes, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        countries[size] = country;
+        states[size] = state;
+        days[size] = day;
+        caseTypes[size] = (byte) caseType.ordinal();
+        values[size] = value;
+        removed.set(size, isRemoved);
+        size++;
+    }
+
+    /**
+     * Returns, for every day index of {@code from}, the index of the same
+     * day in {@code to}, or a negative number if {@code to} doesn't have it.
+     */
+    private static int[] dayIndexes(TimeSeriesStore from, TimeSeriesStore to) {
+        int[] indexes = new int[from.dayCount()];
+        for (int d = 0; d < indexes.length; d++) {
+            indexes[d] = to.dayIndex(from.day(d));
+        }
+        return indexes;
+    }
+}
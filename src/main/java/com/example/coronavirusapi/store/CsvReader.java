@@ -0,0 +1,153 @@
+package com.example.coronavirusapi.store;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal streaming CSV tokenizer working on raw bytes.
+ *
+ * Fields are read one at a time into a reusable buffer, so numeric cells
+ * can be parsed without creating a {@code String} per cell. Supports
+ * quoted fields with {@code ""} escapes, {@code \n} and {@code \r\n} line
+ * endings, and skips a leading UTF-8 byte order mark.
+ */
+final class CsvReader {
+    private final InputStream in;
+    private final byte[] buf = new byte[1 << 16];
+    private int pos;
+    private int limit;
+
+    private byte[] field = new byte[128];
+    private int fieldLength;
+    private boolean endOfLine = true;
+    private int line;
+
+    CsvReader(InputStream in) throws IOException {
+        this.in = in;
+        fill();
+        // Skip UTF-8 byte order mark
+        if (limit - pos >= 3 && buf[0] == (byte) 0xEF
+                && buf[1] == (byte) 0xBB && buf[2] == (byte) 0xBF) {
+            pos = 3;
+        }
+    }
+
+    /**
+     * Reads the next field of the current line.
+     *
+     * @return false if the end of the input was reached instead
+     */
+    boolean next() throws IOException {
+        if (endOfLine) {
+            if (peek() < 0) {
+                return false;
+            }
+            line++;
+        }
+        fieldLength = 0;
+        endOfLine = false;
+
+        int c = read();
+        if (c == '"') {
+            while ((c = read()) >= 0) {
+                if (c == '"') {
+                    if (peek() != '"') {
+                        c = read();
+                        break;
+                    }
+                    read();
+                }
+                append(c);
+            }
+        }
+        while (c >= 0 && c != ',' && c != '\n') {
+            if (c != '\r') {
+                append(c);
+            }
+            c = read();
+        }
+        endOfLine = (c != ',');
+        return true;
+    }
+
+    /**
+     * Returns true if the last field read was the last field of its line.
+     */
+    boolean isEndOfLine() {
+        return endOfLine;
+    }
+
+    /**
+     * Returns the 1-based line number of the last field read.
+     */
+    int line() {
+        return line;
+    }
+
+    boolean isEmpty() {
+        return fieldLength == 0;
+    }
+
+    String text() {
+        return new String(field, 0, fieldLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses the last field read as an integer. Empty fields are 0 and
+     * any fractional part is truncated.
+     */
+    int intValue() {
+        int i = 0;
+        boolean negative = fieldLength > 0 && field[0] == '-';
+        if (negative) {
+            i++;
+        }
+        int value = 0;
+        for (; i < fieldLength && field[i] != '.'; i++) {
+            int digit = field[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException(
+                        "Invalid number '" + text() + "' on line " + line);
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses the last field read as a double, or returns NaN if it is empty.
+     */
+    double doubleValue() {
+        return isEmpty() ? Double.NaN : Double.parseDouble(text());
+    }
+
+    private void append(int c) {
+        if (fieldLength == field.length) {
+            field = Arrays.copyOf(field, field.length * 2);
+        }
+        field[fieldLength++] = (byte) c;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buf[pos++] & 0xFF;
+    }
+
+    private int peek() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buf[pos] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buf, 0, buf.length);
+        pos = 0;
+        limit = Math.max(n, 0);
+        return n > 0;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.coronavirusapi.store;
+
+import com.example.coronavirusapi.CaseType;
+
+import java.util.Arrays;
+
+/**
+ * One parsed daily report: the cumulative counts and last update time of
+ * every region on one day, held in primitive columns indexed by row.
+ *
+ * Rows are sorted by country, then state, so the rows of one country are
+ * contiguous. Counts the report leaves empty are missing rather than 0.
+ */
+public final class DailyReport {
+    /**
+     * Value of {@link #lastUpdate(int)} for rows without a parseable
+     * Last Update.
+     */
+    public static final long NO_UPDATE = Long.MIN_VALUE;
+
+    // Count of a missing value
+    static final int MISSING = -1;
+
+    // Approximate size of a String holding a short ASCII name
+    private static final int STRING_BYTES = 56;
+
+    private final int day;
+    private final String[] countries;
+    private final String[] states;
+    private final long[] lastUpdates;
+    // [caseType][row]
+    private final int[][] values;
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    DailyReport(int day, String[] countries, String[] states, long[] lastUpdates,
+                int[][] values, double[] latitudes, double[] longitudes) {
+        this.day = day;
+        this.countries = countries;
+        this.states = states;
+        this.lastUpdates = lastUpdates;
+        this.values = values;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+    }
+
+    /**
+     * Returns the epoch day of this report.
+     */
+    public int day() {
+        return day;
+    }
+
+    public int rowCount() {
+        return countries.length;
+    }
+
+    public String country(int row) {
+        return countries[row];
+    }
+
+    /**
+     * Returns the state of {@code row}, or an empty string
+     * if the row describes the whole country.
+     */
+    public String state(int row) {
+        return states[row];
+    }
+
+    /**
+     * Returns the Last Update time of {@code row}, in epoch seconds (UTC),
+     * or {@link #NO_UPDATE}.
+     */
+    public long lastUpdate(int row) {
+        return lastUpdates[row];
+    }
+
+    public boolean has(int row, CaseType caseType) {
+        return values[caseType.ordinal()][row] != MISSING;
+    }
+
+    /**
+     * Returns the count of {@code caseType} in {@code row}; only
+     * meaningful if {@link #has} is true.
+     */
+    public int value(int row, CaseType caseType) {
+        return values[caseType.ordinal()][row];
+    }
+
+    public boolean hasLocation(int row) {
+        return !Double.isNaN(latitudes[row]);
+    }
+
+    public double latitude(int row) {
+        return latitudes[row];
+    }
+
+    public double longitude(int row) {
+        return longitudes[row];
+    }
+
+    /**
+     * Returns the rows matching {@code country} and {@code state}
+     * (ignoring case), in ascending order. {@link QueryEngine#ANY}
+     * matches everything; the state of a whole-country row is empty,
+     * so it is matched by the country's name.
+     */
+    public int[] select(String country, String state) {
+        int[] rows = new int[countries.length];
+        int matched = 0;
+        for (int row = 0; row < rows.length; row++) {
+            if ((country.isEmpty() || countries[row].equalsIgnoreCase(country))
+                    && (state.isEmpty() || displayState(row).equalsIgnoreCase(state))) {
+                rows[matched++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, matched);
+    }
+
+    /**
+     * Returns the state name {@code row} is shown under: its state, or
+     * the country's name for whole-country rows.
+     */
+    public String displayState(int row) {
+        return states[row].isEmpty() ? countries[row] : states[row];
+    }
+
+    /**
+     * Returns the approximate heap size of this report, in bytes.
+     */
+    public long sizeBytes() {
+        long perRow = 2L * STRING_BYTES + Long.BYTES
+                + (long) values.length * Integer.BYTES + 2L * Double.BYTES;
+        return 64 + perRow * countries.length;
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.coronavirusapi.store;
+
+import com.example.coronavirusapi.CaseType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Streaming parser for CSSE daily report CSV files.
+ *
+ * Like {@link TimeSeriesCsvParser}, columns are identified by header
+ * name, and counts are parsed straight from the input bytes. The reports
+ * changed layout over time: some start with a byte order mark, later ones
+ * add Latitude/Longitude columns, and Last Update is written as
+ * {@code M/d/yyyy H:mm}, {@code M/d/yy H:mm} or ISO {@code yyyy-MM-ddTHH:mm:ss}.
+ * All of these are accepted.
+ */
+public final class DailyReportCsvParser {
+    private static final String STATE_COLUMN = "Province/State";
+    private static final String COUNTRY_COLUMN = "Country/Region";
+    private static final String LAST_UPDATE_COLUMN = "Last Update";
+    private static final Set<String> LATITUDE_COLUMNS = Set.of("Lat", "Latitude");
+    private static final Set<String> LONGITUDE_COLUMNS = Set.of("Long", "Long_", "Longitude");
+
+    private static final DateTimeFormatter LONG_YEAR_FORMAT =
+            DateTimeFormatter.ofPattern("M/d/yyyy H:mm");
+    private static final DateTimeFormatter SHORT_YEAR_FORMAT =
+            DateTimeFormatter.ofPattern("M/d/yy H:mm");
+
+    // Column roles; case type columns use the case type's ordinal
+    private static final int OTHER = -1;
+    private static final int STATE = -2;
+    private static final int COUNTRY = -3;
+    private static final int LAST_UPDATE = -4;
+    private static final int LATITUDE = -5;
+    private static final int LONGITUDE = -6;
+
+    private DailyReportCsvParser() {
+    }
+
+    /**
+     * Parses the daily report of epoch day {@code day}.
+     *
+     * @param in input to parse; not closed by this method
+     * @throws IllegalArgumentException if the file is malformed
+     */
+    public static DailyReport parse(InputStream in, int day) throws IOException {
+        CsvReader reader = new CsvReader(in);
+
+        List<Integer> roles = new ArrayList<>();
+        while (reader.next()) {
+            roles.add(role(reader.text().trim()));
+            if (reader.isEndOfLine()) {
+                break;
+            }
+        }
+        if (!roles.contains(COUNTRY)) {
+            throw new IllegalArgumentException("Missing " + COUNTRY_COLUMN + " column");
+        }
+        int[] columnRoles = roles.stream().mapToInt(Integer::intValue).toArray();
+
+        int caseTypes = CaseType.values().length;
+        List<String> countries = new ArrayList<>();
+        List<String> states = new ArrayList<>();
+        long[] lastUpdates = new long[64];
+        int[][] values = new int[caseTypes][64];
+        double[] latitudes = new double[64];
+        double[] longitudes = new double[64];
+        while (reader.next()) {
+            // Skip blank lines
+            if (reader.isEndOfLine() && reader.isEmpty()) {
+                continue;
+            }
+            int row = countries.size();
+            if (row == lastUpdates.length) {
+                lastUpdates = Arrays.copyOf(lastUpdates, row * 2);
+                for (int t = 0; t < caseTypes; t++) {
+                    values[t] = Arrays.copyOf(values[t], row * 2);
+                }
+                latitudes = Arrays.copyOf(latitudes, row * 2);
+                longitudes = Arrays.copyOf(longitudes, row * 2);
+            }
+            String country = null;
+            String state = "";
+            lastUpdates[row] = DailyReport.NO_UPDATE;
+            for (int t = 0; t < caseTypes; t++) {
+                values[t][row] = DailyReport.MISSING;
+            }
+            latitudes[row] = Double.NaN;
+            longitudes[row] = Double.NaN;
+
+            int column = 0;
+            while (true) {
+                int role = (column < columnRoles.length) ? columnRoles[column] : OTHER;
+                try {
+                    if (role >= 0) {
+                        if (!reader.isEmpty()) {
+                            values[role][row] = reader.intValue();
+                        }
+                    } else if (role == COUNTRY) {
+                        country = reader.text().trim();
+                    } else if (role == STATE) {
+                        state = reader.text().trim();
+                    } else if (role == LAST_UPDATE) {
+                        lastUpdates[row] = parseTimestamp(reader.text().trim());
+                    } else if (role == LATITUDE) {
+                        latitudes[row] = reader.doubleValue();
+                    } else if (role == LONGITUDE) {
+                        longitudes[row] = reader.doubleValue();
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(e.getMessage(), e);
+                }
+                if (reader.isEndOfLine() || !reader.next()) {
+                    break;
+                }
+                column++;
+            }
+            if (country == null) {
+                throw new IllegalArgumentException(
+                        "Missing " + COUNTRY_COLUMN + " on line " + reader.line());
+            }
+            countries.add(country);
+            states.add(state);
+        }
+
+        // Sort rows by country, then state
+        int rows = countries.size();
+        int[] order = IntStream.range(0, rows).boxed()
+                .sorted(Comparator.<Integer, String>comparing(countries::get)
+                        .thenComparing(states::get))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        String[] sortedCountries = new String[rows];
+        String[] sortedStates = new String[rows];
+        long[] sortedLastUpdates = new long[rows];
+        int[][] sortedValues = new int[caseTypes][rows];
+        double[] sortedLatitudes = new double[rows];
+        double[] sortedLongitudes = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            int row = order[i];
+            sortedCountries[i] = countries.get(row);
+            sortedStates[i] = states.get(row);
+            sortedLastUpdates[i] = lastUpdates[row];
+            for (int t = 0; t < caseTypes; t++) {
+                sortedValues[t][i] = values[t][row];
+            }
+            sortedLatitudes[i] = latitudes[row];
+            sortedLongitudes[i] = longitudes[row];
+        }
+        return new DailyReport(day, sortedCountries, sortedStates, sortedLastUpdates,
+                sortedValues, sortedLatitudes, sortedLongitudes);
+    }
+
+    private static int role(String name) {
+        switch (name) {
+            case STATE_COLUMN:
+                return STATE;
+            case COUNTRY_COLUMN:
+                return COUNTRY;
+            case LAST_UPDATE_COLUMN:
+                return LAST_UPDATE;
+            default:
+                break;
+        }
+        if (LATITUDE_COLUMNS.contains(name)) {
+            return LATITUDE;
+        }
+        if (LONGITUDE_COLUMNS.contains(name)) {
+            return LONGITUDE;
+        }
+        for (CaseType caseType : CaseType.values()) {
+            if (caseType.key().equalsIgnoreCase(name)) {
+                return caseType.ordinal();
+            }
+        }
+        return OTHER;
+    }
+
+    /**
+     * Returns {@code text} as epoch seconds, assuming UTC, or
+     * {@link DailyReport#NO_UPDATE} if it is empty or in no known format.
+     * A bad timestamp doesn't make the row's counts unusable.
+     */
+    static long parseTimestamp(String text) {
+        if (text.isEmpty()) {
+            return DailyReport.NO_UPDATE;
+        }
+        DateTimeFormatter format;
+        if (text.indexOf('T') >= 0) {
+            format = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+        } else {
+            int space = text.indexOf(' ');
+            int slash = text.lastIndexOf('/', space);
+            format = (space - slash - 1 == 4) ? LONG_YEAR_FORMAT : SHORT_YEAR_FORMAT;
+        }
+        try {
+            return LocalDateTime.parse(text, format).toEpochSecond(ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            return DailyReport.NO_UPDATE;
+        }
+    }
+}
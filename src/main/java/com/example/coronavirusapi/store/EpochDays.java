@@ -0,0 +1,110 @@
+package com.example.coronavirusapi.store;
+
+/**
+ * Conversions between epoch days, the canonical date key used throughout
+ * the API, and their text forms.
+ *
+ * Parsing works on the characters of the input and computes the epoch
+ * day arithmetically, so it allocates nothing; it replaces a
+ * {@code SimpleDateFormat} and a {@code Date} per parsed request date.
+ * Dates are written in ISO {@code yyyy-MM-dd} form, which sorts
+ * lexicographically in chronological order.
+ */
+public final class EpochDays {
+    /**
+     * Result of {@link #parse} for text that is not a valid date.
+     */
+    public static final int INVALID = Integer.MIN_VALUE;
+
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private EpochDays() {
+    }
+
+    /**
+     * Returns the epoch day of {@code text}, which must be a date in
+     * {@code MMddyyyy} or {@code yyyy-MM-dd} form, or {@link #INVALID}.
+     * Out-of-range months and days are invalid rather than rolled over.
+     */
+    public static int parse(CharSequence text) {
+        int year;
+        int month;
+        int day;
+        if (text.length() == 8) {
+            month = digits(text, 0, 2);
+            day = digits(text, 2, 4);
+            year = digits(text, 4, 8);
+        } else if (text.length() == 10 && text.charAt(4) == '-' && text.charAt(7) == '-') {
+            year = digits(text, 0, 4);
+            month = digits(text, 5, 7);
+            day = digits(text, 8, 10);
+        } else {
+            return INVALID;
+        }
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            return INVALID;
+        }
+        return of(year, month, day);
+    }
+
+    /**
+     * Returns the epoch day of the given date of the proleptic
+     * Gregorian calendar.
+     */
+    public static int of(int year, int month, int day) {
+        // Count years from March, so the leap day is the last day of a year
+        int y = (month <= 2) ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + ((month > 2) ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Returns {@code epochDay} in {@code yyyy-MM-dd} form.
+     */
+    public static String format(int epochDay) {
+        int z = epochDay + 719468;
+        int era = Math.floorDiv(z, 146097);
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = (mp < 10) ? mp + 3 : mp - 9;
+        int year = yearOfEra + era * 400 + ((month <= 2) ? 1 : 0);
+
+        char[] out = {
+                digit(year / 1000), digit(year / 100), digit(year / 10), digit(year), '-',
+                digit(month / 10), digit(month), '-',
+                digit(day / 10), digit(day)
+        };
+        return new String(out);
+    }
+
+    private static int daysInMonth(int year, int month) {
+        boolean leap = (year % 4 == 0) && (year % 100 != 0 || year % 400 == 0);
+        return (month == 2 && leap) ? 29 : DAYS_IN_MONTH[month - 1];
+    }
+
+    /**
+     * Returns the decimal value of the digits in [from, to), or -1 if
+     * any of them is not a digit.
+     */
+    private static int digits(CharSequence text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static char digit(int value) {
+        return (char) ('0' + value % 10);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.coronavirusapi.store;
+
+/**
+ * Case-insensitive hash index from one or two names to an int.
+ *
+ * Names are hashed and compared one char at a time with the same
+ * case folding as {@link String#equalsIgnoreCase}, so lookups don't
+ * create lowercased copies or concatenated keys. Keys are the names the
+ * store already holds, so the index adds no strings of its own.
+ */
+final class FoldedIndex {
+    private final String[] firsts;
+    private final String[] seconds;
+    private final int[] values;
+    // Open addressing; entry index + 1, or 0 for an empty slot
+    private final int[] slots;
+    private int size;
+
+    /**
+     * @param capacity largest number of keys the index will hold
+     */
+    FoldedIndex(int capacity) {
+        firsts = new String[capacity];
+        seconds = new String[capacity];
+        values = new int[capacity];
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1;
+        slots = new int[tableSize];
+    }
+
+    /**
+     * Maps {@code first} and {@code second} to {@code value}, unless they
+     * are already mapped.
+     *
+     * @return the value they are mapped to
+     */
+    int putIfAbsent(String first, String second, int value) {
+        int mask = slots.length - 1;
+        for (int i = hash(first, second) & mask; ; i = (i + 1) & mask) {
+            int entry = slots[i] - 1;
+            if (entry < 0) {
+                firsts[size] = first;
+                seconds[size] = second;
+                values[size] = value;
+                slots[i] = ++size;
+                return value;
+            }
+            if (matches(entry, first, second)) {
+                return values[entry];
+            }
+        }
+    }
+
+    /**
+     * Returns the value {@code first} and {@code second} are mapped to
+     * (ignoring case), or -1 if they are not.
+     */
+    int get(String first, String second) {
+        int mask = slots.length - 1;
+        for (int i = hash(first, second) & mask; ; i = (i + 1) & mask) {
+            int entry = slots[i] - 1;
+            if (entry < 0) {
+                return -1;
+            }
+            if (matches(entry, first, second)) {
+                return values[entry];
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private boolean matches(int entry, String first, String second) {
+        return firsts[entry].equalsIgnoreCase(first) && seconds[entry].equalsIgnoreCase(second);
+    }
+
+    private static int hash(String first, String second) {
+        int h = foldedHash(first) * 0x9E3779B9 + foldedHash(second);
+        return h ^ (h >>> 16);
+    }
+
+    private static int foldedHash(String name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++) {
+            h = 31 * h + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+        }
+        return h;
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.coronavirusapi.store;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Static k-d tree over points identified by int IDs.
+ *
+ * The tree is implicit: points are permuted so that the median of every
+ * subrange, split on the axis of its depth, sits in the middle of the
+ * subrange. Nodes are positions in flat arrays, so the tree has no
+ * per-node objects.
+ */
+final class KdTree {
+    private final int dims;
+    private final int[] ids;
+    // coords[i * dims + axis] is the coordinate of ids[i] on axis
+    private final double[] coords;
+
+    /**
+     * @param ids    point IDs
+     * @param points coordinates of each point, parallel to {@code ids},
+     *               each holding {@code dims} values
+     */
+    KdTree(int dims, int[] ids, double[][] points) {
+        this.dims = dims;
+        this.ids = ids.clone();
+        this.coords = new double[ids.length * dims];
+        for (int i = 0; i < ids.length; i++) {
+            System.arraycopy(points[i], 0, coords, i * dims, dims);
+        }
+        build(0, ids.length, 0);
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    private void build(int lo, int hi, int depth) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int axis = depth % dims;
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, axis);
+        build(lo, mid, depth + 1);
+        build(mid + 1, hi, depth + 1);
+    }
+
+    /**
+     * Partially sorts [lo, hi] on {@code axis} so that position {@code k}
+     * holds the value it would hold if the range were sorted.
+     */
+    private void select(int lo, int hi, int k, int axis) {
+        while (lo < hi) {
+            double pivot = coord((lo + hi) >>> 1, axis);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (coord(i, axis) < pivot) {
+                    i++;
+                }
+                while (coord(j, axis) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Passes the ID of every point inside the box [{@code min}, {@code max}]
+     * (inclusive on every axis) to {@code out}, in no particular order.
+     */
+    void range(double[] min, double[] max, IntConsumer out) {
+        range(0, ids.length, 0, min, max, out);
+    }
+
+    private void range(int lo, int hi, int depth, double[] min, double[] max, IntConsumer out) {
+        if (lo >= hi) {
+            return;
+        }
+        int axis = depth % dims;
+        int mid = (lo + hi) >>> 1;
+        if (contains(mid, min, max)) {
+            out.accept(ids[mid]);
+        }
+        double split = coord(mid, axis);
+        if (min[axis] <= split) {
+            range(lo, mid, depth + 1, min, max, out);
+        }
+        if (max[axis] >= split) {
+            range(mid + 1, hi, depth + 1, min, max, out);
+        }
+    }
+
+    /**
+     * Returns the IDs of the (at most) {@code k} points closest to
+     * {@code point} by Euclidean distance, closest first.
+     */
+    int[] nearest(double[] point, int k) {
+        Neighbors neighbors = new Neighbors(Math.min(k, ids.length));
+        if (neighbors.capacity > 0) {
+            nearest(0, ids.length, 0, point, neighbors);
+        }
+        return neighbors.sorted();
+    }
+
+    private void nearest(int lo, int hi, int depth, double[] point, Neighbors neighbors) {
+        if (lo >= hi) {
+            return;
+        }
+        int axis = depth % dims;
+        int mid = (lo + hi) >>> 1;
+        neighbors.offer(ids[mid], distanceSquared(mid, point));
+
+        double diff = point[axis] - coord(mid, axis);
+        if (diff < 0) {
+            nearest(lo, mid, depth + 1, point, neighbors);
+            if (!neighbors.isFull() || diff * diff < neighbors.worst()) {
+                nearest(mid + 1, hi, depth + 1, point, neighbors);
+            }
+        } else {
+            nearest(mid + 1, hi, depth + 1, point, neighbors);
+            if (!neighbors.isFull() || diff * diff < neighbors.worst()) {
+                nearest(lo, mid, depth + 1, point, neighbors);
+            }
+        }
+    }
+
+    private double coord(int i, int axis) {
+        return coords[i * dims + axis];
+    }
+
+    private boolean contains(int i, double[] min, double[] max) {
+        for (int axis = 0; axis < dims; axis++) {
+            double c = coord(i, axis);
+            if (c < min[axis] || c > max[axis]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private double distanceSquared(int i, double[] point) {
+        double sum = 0;
+        for (int axis = 0; axis < dims; axis++) {
+            double d = coord(i, axis) - point[axis];
+            sum += d * d;
+        }
+        return sum;
+    }
+
+    private void swap(int i, int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        for (int axis = 0; axis < dims; axis++) {
+            double c = coords[i * dims + axis];
+            coords[i * dims + axis] = coords[j * dims + axis];
+            coords[j * dims + axis] = c;
+        }
+    }
+
+    /**
+     * Bounded max-heap of the closest points found so far.
+     */
+    private static final class Neighbors {
+        private final int capacity;
+        private final int[] ids;
+        private final double[] distances;
+        private int size;
+
+        Neighbors(int capacity) {
+            this.capacity = capacity;
+            this.ids = new int[capacity];
+            this.distances = new double[capacity];
+        }
+
+        boolean isFull() {
+            return size == capacity;
+        }
+
+        double worst() {
+            return distances[0];
+        }
+
+        void offer(int id, double distance) {
+            if (size < capacity) {
+                ids[size] = id;
+                distances[size] = distance;
+                siftUp(size++);
+            } else if (distance < distances[0]) {
+                ids[0] = id;
+                distances[0] = distance;
+                siftDown(0, size);
+            }
+        }
+
+        int[] sorted() {
+            int[] out = new int[size];
+            for (int i = size - 1; i >= 0; i--) {
+                out[i] = ids[0];
+                swap(0, i);
+                siftDown(0, i);
+            }
+            return out;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (distances[parent] >= distances[i]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i, int size) {
+            while (true) {
+                int largest = i;
+                for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                    if (distances[child] > distances[largest]) {
+                        largest = child;
+                    }
+                }
+                if (largest == i) {
+                    return;
+                }
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+            double d = distances[i];
+            distances[i] = distances[j];
+            distances[j] = d;
+        }
+    }
+}
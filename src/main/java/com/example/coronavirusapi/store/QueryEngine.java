@@ -0,0 +1,219 @@
+package com.example.coronavirusapi.store;
+
+import com.example.coronavirusapi.CaseType;
+import com.example.coronavirusapi.Metric;
+
+import java.util.*;
+
+/**
+ * Answers country/state/date/case type queries against a {@link TimeSeriesStore}
+ * using the store's case-insensitive indexes, so a query only touches the
+ * series it returns.
+ */
+public final class QueryEngine {
+    /**
+     * Query value that matches every country or state.
+     */
+    public static final String ANY = "";
+
+    private final TimeSeriesStore store;
+
+    // Date keys of the store's date axis, formatted once
+    private final String[] dateKeys;
+
+    private final SpatialIndex spatialIndex;
+
+    public QueryEngine(TimeSeriesStore store) {
+        this.store = store;
+        this.dateKeys = new String[store.dayCount()];
+        for (int d = 0; d < dateKeys.length; d++) {
+            dateKeys[d] = dateKey(store.day(d));
+        }
+        this.spatialIndex = new SpatialIndex(store);
+    }
+
+    /**
+     * Returns the key used for {@code epochDay} in query results, in
+     * {@code yyyy-MM-dd} form so that keys sort chronologically.
+     */
+    public static String dateKey(int epochDay) {
+        return EpochDays.format(epochDay);
+    }
+
+    public TimeSeriesStore store() {
+        return store;
+    }
+
+    public SpatialIndex spatialIndex() {
+        return spatialIndex;
+    }
+
+    /**
+     * Returns the IDs of all series matching {@code country} and {@code state}
+     * (ignoring case), in ascending order. {@link #ANY} matches everything.
+     */
+    public int[] select(String country, String state) {
+        boolean anyCountry = country.isEmpty();
+        boolean anyState = state.isEmpty();
+
+        if (!anyCountry && !anyState) {
+            int series = store.findSeries(country, state);
+            return (series < 0) ? new int[0] : new int[]{series};
+        }
+        if (!anyCountry) {
+            int countryId = store.findCountry(country);
+            return (countryId < 0) ? new int[0] : store.seriesOfCountry(countryId);
+        }
+        if (!anyState) {
+            return store.seriesOfState(state);
+        }
+        int[] all = new int[store.seriesCount()];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = i;
+        }
+        return all;
+    }
+
+    /**
+     * Returns all entries matching the query, to be rendered as a
+     * {country: {state: {date: {caseType: count}}}} object.
+     *
+     * @param fromDay  first epoch day to match (inclusive)
+     * @param toDay    last epoch day to match (inclusive)
+     * @param caseType case type to match, or null to match all case types
+     * @param daily    if true, return new cases per day instead of
+     *                 cumulative counts
+     */
+    public QueryResult query(int fromDay, int toDay, String country, String state,
+                             CaseType caseType, boolean daily) {
+        return query(fromDay, toDay, select(country, state), caseType, daily);
+    }
+
+    /**
+     * Returns the entries of the given series matching the query, to be
+     * rendered like {@link #query(int, int, String, String, CaseType, boolean)}.
+     *
+     * @param series IDs of the series to match; sorted in place
+     */
+    public QueryResult query(int fromDay, int toDay, int[] series,
+                             CaseType caseType, boolean daily) {
+        // Restrict the scan to the column indexes of the requested days
+        int from = store.lowerDayIndex(fromDay);
+        int to = store.upperDayIndex(toDay);
+        CaseType[] caseTypes = (caseType == null)
+                ? CaseType.values()
+                : new CaseType[]{caseType};
+
+        // Results are rendered grouped by country, in series order
+        Arrays.sort(series);
+        int matched = 0;
+        if (from < to) {
+            // Omit series with empty data (state: {})
+            for (int s : series) {
+                if (hasAny(s, caseTypes)) {
+                    series[matched++] = s;
+                }
+            }
+        }
+        return new QueryResult(store, dateKeys, Arrays.copyOf(series, matched), null,
+                from, to, caseTypes, daily, false);
+    }
+
+    /**
+     * Returns the entries of the (at most) {@code k} located series
+     * nearest to the given point, closest first, together with their
+     * distances; see {@link QueryResult#distances()}.
+     */
+    public QueryResult nearest(int fromDay, int toDay, double latitude, double longitude,
+                               int k, CaseType caseType, boolean daily) {
+        int from = store.lowerDayIndex(fromDay);
+        int to = store.upperDayIndex(toDay);
+        CaseType[] caseTypes = (caseType == null)
+                ? CaseType.values()
+                : new CaseType[]{caseType};
+
+        // Unlike query, keep the order of the index
+        int[] series = spatialIndex.nearest(latitude, longitude, k);
+        double[] distances = new double[series.length];
+        int matched = 0;
+        if (from < to) {
+            for (int s : series) {
+                if (hasAny(s, caseTypes)) {
+                    distances[matched] = SpatialIndex.distanceKm(latitude, longitude,
+                            store.latitude(s), store.longitude(s));
+                    series[matched++] = s;
+                }
+            }
+        }
+        return new QueryResult(store, dateKeys, Arrays.copyOf(series, matched),
+                Arrays.copyOf(distances, matched), from, to, caseTypes, daily, false);
+    }
+
+    /**
+     * Returns the trends of all series matching the query, to be rendered
+     * as a {country: {state: {date: {measure: value}}}} object.
+     *
+     * @param fromDay first epoch day to match (inclusive)
+     * @param toDay   last epoch day to match (inclusive)
+     * @param window  window, in days, of moving averages and doubling times
+     */
+    public TrendResult trends(int fromDay, int toDay, String country, String state,
+                              CaseType caseType, int window) {
+        int from = store.lowerDayIndex(fromDay);
+        int to = store.upperDayIndex(toDay);
+
+        int[] series = select(country, state);
+        int matched = 0;
+        if (from < to) {
+            for (int s : series) {
+                if (store.has(s, caseType)) {
+                    series[matched++] = s;
+                }
+            }
+        }
+        return new TrendResult(store, dateKeys, Arrays.copyOf(series, matched),
+                from, to, caseType, window, false);
+    }
+
+    /**
+     * Returns the (at most) {@code n} regions with the highest
+     * {@code metric} on the last day up to {@code day}, highest first.
+     *
+     * If {@code country} is {@link #ANY}, countries are ranked by their
+     * {@link TimeSeriesStore#TOTAL} series; otherwise the states of
+     * {@code country} are ranked.
+     *
+     * @return IDs of the ranked series
+     */
+    public int[] top(String country, int day, CaseType caseType, Metric metric,
+                     int window, int n) {
+        int dayIndex = store.upperDayIndex(day) - 1;
+        if (dayIndex < 0) {
+            return new int[0];
+        }
+
+        int[] candidates = country.isEmpty()
+                ? store.seriesOfState(TimeSeriesStore.TOTAL)
+                : select(country, ANY);
+        int matched = 0;
+        for (int s : candidates) {
+            boolean total = country.isEmpty()
+                    ? store.country(s).equals(TimeSeriesStore.TOTAL)
+                    : store.state(s).equals(TimeSeriesStore.TOTAL);
+            if (!total && store.has(s, caseType)) {
+                candidates[matched++] = s;
+            }
+        }
+        return Analytics.top(Arrays.copyOf(candidates, matched), n,
+                s -> metric.score(store, s, caseType, dayIndex, window));
+    }
+
+    private boolean hasAny(int series, CaseType[] caseTypes) {
+        for (CaseType t : caseTypes) {
+            if (store.has(series, t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.coronavirusapi.store;
+
+import com.example.coronavirusapi.CaseType;
+
+/**
+ * Lazy view of the series, days and case types matched by a query.
+ *
+ * No values are copied: a result only references the {@link TimeSeriesStore}
+ * it was computed from, so it can be written out directly from the
+ * store's columns. Every series in a result has at least one of its
+ * case types, and the day range is never empty unless there are no series.
+ */
+public final class QueryResult {
+    private final TimeSeriesStore store;
+    private final String[] dateKeys;
+    private final int[] series;
+    private final double[] distances;
+    private final int fromDayIndex;
+    private final int toDayIndex;
+    private final CaseType[] caseTypes;
+    private final boolean daily;
+    private final boolean pretty;
+
+    QueryResult(TimeSeriesStore store, String[] dateKeys, int[] series, double[] distances,
+                int fromDayIndex, int toDayIndex, CaseType[] caseTypes,
+                boolean daily, boolean pretty) {
+        this.store = store;
+        this.dateKeys = dateKeys;
+        this.series = series;
+        this.distances = distances;
+        this.fromDayIndex = fromDayIndex;
+        this.toDayIndex = toDayIndex;
+        this.caseTypes = caseTypes;
+        this.daily = daily;
+        this.pretty = pretty;
+    }
+
+    /**
+     * Returns a copy of this result that is rendered
+     * with indentation if {@code pretty} is true.
+     */
+    public QueryResult prettyPrinted(boolean pretty) {
+        return new QueryResult(store, dateKeys, series, distances,
+                fromDayIndex, toDayIndex, caseTypes, daily, pretty);
+    }
+
+    public TimeSeriesStore store() {
+        return store;
+    }
+
+    /**
+     * Returns the IDs of the matched series, in ascending order, or
+     * closest first if this is a nearest-neighbor result.
+     * The returned array is shared and must not be modified.
+     */
+    public int[] series() {
+        return series;
+    }
+
+    /**
+     * Returns the great-circle distance, in kilometers, of each matched
+     * series from the point of a nearest-neighbor query, parallel to
+     * {@link #series()}, or null if this is not a nearest-neighbor result.
+     * The returned array is shared and must not be modified.
+     */
+    public double[] distances() {
+        return distances;
+    }
+
+    public int fromDayIndex() {
+        return fromDayIndex;
+    }
+
+    public int toDayIndex() {
+        return toDayIndex;
+    }
+
+    /**
+     * Returns the matched case types, in declaration order.
+     * The returned array is shared and must not be modified.
+     */
+    public CaseType[] caseTypes() {
+        return caseTypes;
+    }
+
+    public boolean isDaily() {
+        return daily;
+    }
+
+    public boolean isPrettyPrinted() {
+        return pretty;
+    }
+
+    public boolean isEmpty() {
+        return series.length == 0;
+    }
+
+    /**
+     * Returns the key used for day index {@code dayIndex} in responses.
+     */
+    public String dateKey(int dayIndex) {
+        return dateKeys[dayIndex];
+    }
+
+    /**
+     * Returns the value of {@code series} for {@code caseType} at
+     * {@code dayIndex}: the cumulative count, or the number of new cases
+     * on that day if this result is daily.
+     */
+    public int value(int series, CaseType caseType, int dayIndex) {
+        return daily
+                ? store.newCases(series, caseType, dayIndex, dayIndex + 1)
+                : store.value(series, caseType, dayIndex);
+    }
+
+    /**
+     * Returns the number of values in this result.
+     */
+    public long cellCount() {
+        long cells = 0;
+        for (int s : series) {
+            for (CaseType t : caseTypes) {
+                cells += store.has(s, t) ? toDayIndex - fromDayIndex : 0;
+            }
+        }
+        return cells;
+    }
+}
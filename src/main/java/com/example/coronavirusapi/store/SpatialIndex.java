@@ -0,0 +1,94 @@
+package com.example.coronavirusapi.store;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Spatial index over the located series of a {@link TimeSeriesStore}.
+ *
+ * Bounding-box queries use a k-d tree over (latitude, longitude).
+ * Nearest-neighbor queries use a k-d tree over the points' unit vectors
+ * in 3-D space, where straight-line distance grows with great-circle
+ * distance, so neighbors are exact across the poles and the antimeridian.
+ */
+public final class SpatialIndex {
+    /**
+     * Mean radius of the earth, in kilometers.
+     */
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private final KdTree byCoordinates;
+    private final KdTree byPosition;
+
+    public SpatialIndex(TimeSeriesStore store) {
+        int[] located = IntStream.range(0, store.seriesCount())
+                .filter(store::hasLocation)
+                .toArray();
+        double[][] coordinates = new double[located.length][];
+        double[][] positions = new double[located.length][];
+        for (int i = 0; i < located.length; i++) {
+            double latitude = store.latitude(located[i]);
+            double longitude = store.longitude(located[i]);
+            coordinates[i] = new double[]{latitude, longitude};
+            positions[i] = position(latitude, longitude);
+        }
+        byCoordinates = new KdTree(2, located, coordinates);
+        byPosition = new KdTree(3, located, positions);
+    }
+
+    /**
+     * Returns the number of indexed series.
+     */
+    public int size() {
+        return byCoordinates.size();
+    }
+
+    /**
+     * Returns the IDs of the series inside the box, in ascending order.
+     * If {@code west} is greater than {@code east}, the box crosses the
+     * antimeridian.
+     */
+    public int[] within(double south, double north, double west, double east) {
+        IntStream.Builder out = IntStream.builder();
+        if (west <= east) {
+            byCoordinates.range(new double[]{south, west}, new double[]{north, east}, out);
+        } else {
+            byCoordinates.range(new double[]{south, west}, new double[]{north, 180}, out);
+            byCoordinates.range(new double[]{south, -180}, new double[]{north, east}, out);
+        }
+        int[] series = out.build().toArray();
+        Arrays.sort(series);
+        return series;
+    }
+
+    /**
+     * Returns the IDs of the (at most) {@code k} series closest to the
+     * given point, closest first.
+     */
+    public int[] nearest(double latitude, double longitude, int k) {
+        return byPosition.nearest(position(latitude, longitude), k);
+    }
+
+    /**
+     * Returns the great-circle distance between two points, in kilometers.
+     */
+    public static double distanceKm(double latitude1, double longitude1,
+                                    double latitude2, double longitude2) {
+        double[] a = position(latitude1, longitude1);
+        double[] b = position(latitude2, longitude2);
+        double chord = Math.sqrt((a[0] - b[0]) * (a[0] - b[0])
+                + (a[1] - b[1]) * (a[1] - b[1])
+                + (a[2] - b[2]) * (a[2] - b[2]));
+        return 2 * Math.asin(Math.min(1, chord / 2)) * EARTH_RADIUS_KM;
+    }
+
+    private static double[] position(double latitude, double longitude) {
+        double phi = Math.toRadians(latitude);
+        double lambda = Math.toRadians(longitude);
+        return new double[]{
+                Math.cos(phi) * Math.cos(lambda),
+                Math.cos(phi) * Math.sin(lambda),
+                Math.sin(phi)
+        };
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.coronavirusapi.store;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Streaming parser for CSSE time series CSV files.
+ *
+ * Columns are identified by header name, so their order does not matter.
+ * Every header that is a date ({@code M/d/yy}) is a value column; values
+ * are parsed straight from the input bytes into one {@code int[]} per row,
+ * without per-row maps or per-cell strings. Each row's coordinates are
+ * kept if the file has latitude and longitude columns.
+ */
+public final class TimeSeriesCsvParser {
+    private static final String STATE_COLUMN = "Province/State";
+    private static final String COUNTRY_COLUMN = "Country/Region";
+    private static final Set<String> LATITUDE_COLUMNS = Set.of("Lat", "Latitude");
+    private static final Set<String> LONGITUDE_COLUMNS = Set.of("Long", "Long_", "Longitude");
+
+    // Date format used for column headers in the CSV files
+    private static final DateTimeFormatter CSV_DATE_FORMAT =
+            DateTimeFormatter.ofPattern("M/d/yy");
+
+    // Column roles
+    private static final int OTHER = -1;
+    private static final int STATE = -2;
+    private static final int COUNTRY = -3;
+    private static final int LATITUDE = -4;
+    private static final int LONGITUDE = -5;
+
+    private TimeSeriesCsvParser() {
+    }
+
+    /**
+     * Parses a time series CSV file.
+     *
+     * @param in input to parse; not closed by this method
+     * @throws IllegalArgumentException if the file is malformed
+     */
+    public static ParsedFile parse(InputStream in) throws IOException {
+        CsvReader reader = new CsvReader(in);
+
+        // Header: map each column to its role, or to its index
+        // among the date columns
+        List<Integer> roles = new ArrayList<>();
+        List<Integer> days = new ArrayList<>();
+        while (reader.next()) {
+            String name = reader.text().trim();
+            if (name.equals(STATE_COLUMN)) {
+                roles.add(STATE);
+            } else if (name.equals(COUNTRY_COLUMN)) {
+                roles.add(COUNTRY);
+            } else if (LATITUDE_COLUMNS.contains(name)) {
+                roles.add(LATITUDE);
+            } else if (LONGITUDE_COLUMNS.contains(name)) {
+                roles.add(LONGITUDE);
+            } else {
+                Integer day = parseDay(name);
+                roles.add((day == null) ? OTHER : days.size());
+                if (day != null) {
+                    days.add(day);
+                }
+            }
+            if (reader.isEndOfLine()) {
+                break;
+            }
+        }
+        if (!roles.contains(COUNTRY)) {
+            throw new IllegalArgumentException("Missing " + COUNTRY_COLUMN + " column");
+        }
+        int[] columnRoles = roles.stream().mapToInt(Integer::intValue).toArray();
+
+        ParsedFile out = new ParsedFile(days.stream().mapToInt(Integer::intValue).toArray());
+        while (reader.next()) {
+            // Skip blank lines
+            if (reader.isEndOfLine() && reader.isEmpty()) {
+                continue;
+            }
+            String country = null;
+            String state = "";
+            double latitude = Double.NaN;
+            double longitude = Double.NaN;
+            int[] values = new int[out.days.length];
+            int column = 0;
+            while (true) {
+                int role = (column < columnRoles.length) ? columnRoles[column] : OTHER;
+                try {
+                    if (role >= 0) {
+                        values[role] = reader.intValue();
+                    } else if (role == COUNTRY) {
+                        country = reader.text();
+                    } else if (role == STATE) {
+                        state = reader.text();
+                    } else if (role == LATITUDE) {
+                        latitude = reader.doubleValue();
+                    } else if (role == LONGITUDE) {
+                        longitude = reader.doubleValue();
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(e.getMessage(), e);
+                }
+                if (reader.isEndOfLine() || !reader.next()) {
+                    break;
+                }
+                column++;
+            }
+            if (country == null) {
+                throw new IllegalArgumentException(
+                        "Missing " + COUNTRY_COLUMN + " on line " + reader.line());
+            }
+            out.add(country, state, latitude, longitude, values);
+        }
+        return out;
+    }
+
+    private static Integer parseDay(String header) {
+        if (header.isEmpty() || !Character.isDigit(header.charAt(0))) {
+            return null;
+        }
+        try {
+            return (int) LocalDate.parse(header, CSV_DATE_FORMAT).toEpochDay();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Rows of a parsed time series file. All rows share the same
+     * {@link #days()} array.
+     */
+    public static final class ParsedFile {
+        private final int[] days;
+        private final List<String> countries = new ArrayList<>();
+        private final List<String> states = new ArrayList<>();
+        private final List<int[]> values = new ArrayList<>();
+        private double[] latitudes = new double[256];
+        private double[] longitudes = new double[256];
+
+        private ParsedFile(int[] days) {
+            this.days = days;
+        }
+
+        private void add(String country, String state,
+                         double latitude, double longitude, int[] values) {
+            int row = countries.size();
+            if (row == latitudes.length) {
+                latitudes = Arrays.copyOf(latitudes, row * 2);
+                longitudes = Arrays.copyOf(longitudes, row * 2);
+            }
+            countries.add(country);
+            states.add(state);
+            latitudes[row] = latitude;
+            longitudes[row] = longitude;
+            this.values.add(values);
+        }
+
+        /**
+         * Returns the epoch days of the value columns, in file order.
+         */
+        public int[] days() {
+            return days;
+        }
+
+        public int rowCount() {
+            return countries.size();
+        }
+
+        public String country(int row) {
+            return countries.get(row);
+        }
+
+        /**
+         * Returns the state of {@code row}, or an empty string
+         * if the row describes the whole country.
+         */
+        public String state(int row) {
+            return states.get(row);
+        }
+
+        /**
+         * Returns the latitude of {@code row}, or NaN if the file has none.
+         */
+        public double latitude(int row) {
+            return latitudes[row];
+        }
+
+        /**
+         * Returns the longitude of {@code row}, or NaN if the file has none.
+         */
+        public double longitude(int row) {
+            return longitudes[row];
+        }
+
+        /**
+         * Returns the values of {@code row}, parallel to {@link #days()}.
+         */
+        public int[] values(int row) {
+            return values.get(row);
+        }
+    }
+}
@@ -0,0 +1,521 @@
+package com.example.coronavirusapi.store;
+
+import com.example.coronavirusapi.CaseType;
+
+import java.nio.IntBuffer;
+import java.util.*;
+
+/**
+ * Immutable, column-oriented store for the cumulative COVID-19 time series.
+ *
+ * Countries and states are dictionary-encoded into integer IDs and every
+ * date is an epoch day on a shared, sorted date axis. Each (country, state)
+ * pair is a series, and each series holds one value column per case
+ * type, indexed by position on the date axis.
+ *
+ * All value columns are stored back to back in one {@link IntBuffer}.
+ * Stores built from CSV data keep it on the heap; stores read from a
+ * {@link TimeSeriesStoreFile} read their values straight from the mapped
+ * file, so they are paged in on demand and share the page cache with
+ * other processes mapping the same file.
+ *
+ * Series are sorted by country name, then state name, so scanning them
+ * in ID order visits them in the same order a sorted map would. This also
+ * means the series of one country occupy a contiguous range of IDs.
+ *
+ * Case-insensitive indexes on country, state and (country, state) are
+ * built once at construction so lookups never scan the whole store.
+ *
+ * Series loaded from a CSV row with coordinates also have a location;
+ * rollups don't, so the located series never overlap.
+ */
+public final class TimeSeriesStore {
+    /**
+     * Name of the rollup state of each country, and of the
+     * rollup country holding worldwide totals.
+     */
+    public static final String TOTAL = "total";
+
+    private static final int CASE_TYPES = CaseType.values().length;
+
+    // Dictionaries (ID -> name)
+    private final String[] countries;
+    private final String[] states;
+
+    // Per-series dictionary IDs
+    private final int[] seriesCountry;
+    private final int[] seriesState;
+
+    // Sorted epoch days; column index i holds the value for days[i]
+    private final int[] days;
+
+    // Every value column, back to back
+    private final IntBuffer values;
+    // Position in values of the column of series s and case type t at
+    // s * CASE_TYPES + t.ordinal(), or -1 if that case type was never loaded
+    private final int[] columnStart;
+
+    // Per-series coordinates in degrees, NaN if the series has no location
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    // Case-insensitive indexes; the state index maps to a position in stateSeries
+    private final FoldedIndex countryIndex;
+    private final FoldedIndex stateIndex;
+    private final FoldedIndex seriesIndex;
+    private final int[][] stateSeries;
+
+    // Series of country c are [countryStart[c], countryStart[c + 1])
+    private final int[] countryStart;
+
+    TimeSeriesStore(String[] countries, String[] states,
+                    int[] seriesCountry, int[] seriesState,
+                    int[] days, IntBuffer values, int[] columnStart,
+                    double[] latitudes, double[] longitudes) {
+        this.countries = countries;
+        this.states = states;
+        this.seriesCountry = seriesCountry;
+        this.seriesState = seriesState;
+        this.days = days;
+        this.values = values;
+        this.columnStart = columnStart;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+
+        countryIndex = new FoldedIndex(countries.length);
+        for (int c = 0; c < countries.length; c++) {
+            countryIndex.putIfAbsent(countries[c], "", c);
+        }
+
+        // State names equal ignoring case share a group
+        stateIndex = new FoldedIndex(states.length);
+        int[] stateGroup = new int[states.length];
+        for (int s = 0; s < states.length; s++) {
+            stateGroup[s] = stateIndex.putIfAbsent(states[s], "", stateIndex.size());
+        }
+        int[] groupSizes = new int[stateIndex.size()];
+        for (int state : seriesState) {
+            groupSizes[stateGroup[state]]++;
+        }
+        stateSeries = new int[groupSizes.length][];
+        for (int g = 0; g < groupSizes.length; g++) {
+            stateSeries[g] = new int[groupSizes[g]];
+            groupSizes[g] = 0;
+        }
+
+        countryStart = new int[countries.length + 1];
+        seriesIndex = new FoldedIndex(seriesCountry.length);
+        for (int series = 0; series < seriesCountry.length; series++) {
+            countryStart[seriesCountry[series] + 1] = series + 1;
+            seriesIndex.putIfAbsent(country(series), state(series), series);
+            int group = stateGroup[seriesState[series]];
+            stateSeries[group][groupSizes[group]++] = series;
+        }
+    }
+
+    // Dictionaries and columns, for TimeSeriesStoreFile
+    String[] countries() {
+        return countries;
+    }
+
+    String[] states() {
+        return states;
+    }
+
+    IntBuffer values() {
+        return values.duplicate();
+    }
+
+    public int seriesCount() {
+        return seriesCountry.length;
+    }
+
+    public int dayCount() {
+        return days.length;
+    }
+
+    /**
+     * Returns the epoch day at position {@code dayIndex} of the date axis.
+     */
+    public int day(int dayIndex) {
+        return days[dayIndex];
+    }
+
+    /**
+     * Returns the position of {@code epochDay} on the date axis,
+     * or a negative number if no data was loaded for that day.
+     */
+    public int dayIndex(int epochDay) {
+        return Arrays.binarySearch(days, epochDay);
+    }
+
+    /**
+     * Returns the position of the first day on the date axis that is
+     * on or after {@code epochDay}, or {@link #dayCount()} if there is none.
+     */
+    public int lowerDayIndex(int epochDay) {
+        int i = dayIndex(epochDay);
+        return (i >= 0) ? i : -(i + 1);
+    }
+
+    /**
+     * Returns the position of the first day on the date axis that is
+     * after {@code epochDay}, or {@link #dayCount()} if there is none.
+     */
+    public int upperDayIndex(int epochDay) {
+        int i = dayIndex(epochDay);
+        return (i >= 0) ? i + 1 : -(i + 1);
+    }
+
+    public String country(int series) {
+        return countries[seriesCountry[series]];
+    }
+
+    public String state(int series) {
+        return states[seriesState[series]];
+    }
+
+    public int countryId(int series) {
+        return seriesCountry[series];
+    }
+
+    public int stateId(int series) {
+        return seriesState[series];
+    }
+
+    /**
+     * Returns the ID of {@code country} (ignoring case), or -1 if not found.
+     */
+    public int findCountry(String country) {
+        return countryIndex.get(country, "");
+    }
+
+    /**
+     * Returns the ID of the series for {@code country} and {@code state}
+     * (ignoring case), or -1 if not found.
+     */
+    public int findSeries(String country, String state) {
+        return seriesIndex.get(country, state);
+    }
+
+    /**
+     * Returns the IDs of all series of the country with ID {@code countryId}.
+     */
+    public int[] seriesOfCountry(int countryId) {
+        int from = countryStart[countryId];
+        int to = countryStart[countryId + 1];
+        int[] out = new int[to - from];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = from + i;
+        }
+        return out;
+    }
+
+    /**
+     * Returns the IDs of all series whose state equals {@code state}
+     * (ignoring case), in ascending order.
+     */
+    public int[] seriesOfState(String state) {
+        int group = stateIndex.get(state, "");
+        return (group < 0) ? new int[0] : stateSeries[group].clone();
+    }
+
+    public boolean hasLocation(int series) {
+        return !Double.isNaN(latitudes[series]);
+    }
+
+    /**
+     * Returns the latitude of {@code series} in degrees,
+     * or NaN if it has no location.
+     */
+    public double latitude(int series) {
+        return latitudes[series];
+    }
+
+    /**
+     * Returns the longitude of {@code series} in degrees,
+     * or NaN if it has no location.
+     */
+    public double longitude(int series) {
+        return longitudes[series];
+    }
+
+    public boolean has(int series, CaseType caseType) {
+        return columnStart[series * CASE_TYPES + caseType.ordinal()] >= 0;
+    }
+
+    /**
+     * Returns a copy of the value column of {@code series} for
+     * {@code caseType}, or null if that case type was not loaded for
+     * the series.
+     */
+    public int[] column(int series, CaseType caseType) {
+        int start = columnStart[series * CASE_TYPES + caseType.ordinal()];
+        if (start < 0) {
+            return null;
+        }
+        int[] column = new int[days.length];
+        IntBuffer view = values.duplicate();
+        view.position(start);
+        view.get(column);
+        return column;
+    }
+
+    public int value(int series, CaseType caseType, int dayIndex) {
+        return values.get(start(series, caseType, dayIndex) + dayIndex);
+    }
+
+    /**
+     * Returns the number of new cases of {@code series} in the day index
+     * range [{@code fromDayIndex}, {@code toDayIndex}).
+     *
+     * Since columns hold cumulative counts, each column already is the
+     * prefix sum of its daily new cases, so any range costs O(1).
+     */
+    public int newCases(int series, CaseType caseType, int fromDayIndex, int toDayIndex) {
+        if (fromDayIndex >= toDayIndex) {
+            return 0;
+        }
+        int start = start(series, caseType, toDayIndex - 1);
+        int before = (fromDayIndex == 0) ? 0 : values.get(start + fromDayIndex - 1);
+        return values.get(start + toDayIndex - 1) - before;
+    }
+
+    /**
+     * Returns the number of {@code int} cells held by this store.
+     */
+    public long cellCount() {
+        return values.capacity();
+    }
+
+    /**
+     * Returns the position in {@code values} of the column of
+     * {@code series} for {@code caseType}, checking that it has
+     * {@code dayIndex}, since out of range reads of the shared buffer
+     * would land in another column.
+     */
+    private int start(int series, CaseType caseType, int dayIndex) {
+        int start = columnStart[series * CASE_TYPES + caseType.ordinal()];
+        if (start < 0 || dayIndex < 0 || dayIndex >= days.length) {
+            throw new IndexOutOfBoundsException("No value of series " + series
+                    + " for " + caseType.key() + " at day index " + dayIndex);
+        }
+        return start;
+    }
+
+    /**
+     * Accumulates rows of parsed CSV data and compiles them into a
+     * {@link TimeSeriesStore}. Rows may arrive in any order and may
+     * cover different sets of dates; the built store's date axis is
+     * the union of all dates seen. Cells missing from a row are 0.
+     *
+     * Building also computes rollups: every country gets a {@link #TOTAL}
+     * state summing all of its states, and a {@link #TOTAL} country holds
+     * the worldwide sums. A row with an empty state describes the whole
+     * country; it becomes the country's total if the country has no
+     * other states, and is otherwise kept under the country's own name.
+     *
+     * Builders are not thread-safe.
+     */
+    public static final class Builder {
+        private final Map<String, Map<String, int[][][]>> rows = new HashMap<>();
+        private final SortedSet<Integer> axis = new TreeSet<>();
+        private final Map<String, Map<String, double[]>> locations = new HashMap<>();
+        private int[] lastDays;
+
+        /**
+         * Adds the values of one CSV row.
+         *
+         * @param state  state name, or an empty string if the row
+         *               describes the whole country
+         * @param days   epoch days, parallel to {@code values}
+         * @param values cumulative case counts for each day in {@code days}
+         */
+        public Builder add(String country, String state, CaseType caseType,
+                           int[] days, int[] values) {
+            if (days.length != values.length) {
+                throw new IllegalArgumentException(
+                        "days and values must have the same length");
+            }
+            // Rows of one file usually share their days array
+            if (days != lastDays) {
+                for (int day : days) {
+                    axis.add(day);
+                }
+                lastDays = days;
+            }
+            rows.computeIfAbsent(country, k -> new HashMap<>())
+                    .computeIfAbsent(state, k -> new int[CASE_TYPES][][])
+                    [caseType.ordinal()] = new int[][]{days, values};
+            return this;
+        }
+
+        /**
+         * Sets the coordinates of the region of a CSV row. Coordinates
+         * that are NaN or exactly (0, 0), which the CSSE data uses for
+         * unassigned rows, are ignored.
+         *
+         * @param state state name, or an empty string if the row
+         *              describes the whole country
+         */
+        public Builder locate(String country, String state,
+                              double latitude, double longitude) {
+            if (Double.isNaN(latitude) || Double.isNaN(longitude)
+                    || (latitude == 0 && longitude == 0)) {
+                return this;
+            }
+            locations.computeIfAbsent(country, k -> new HashMap<>())
+                    .put(state, new double[]{latitude, longitude});
+            return this;
+        }
+
+        public TimeSeriesStore build() {
+            int[] days = axis.stream().mapToInt(Integer::intValue).toArray();
+
+            // country -> state -> columns, aligned on `days`, including rollups
+            Map<String, SortedMap<String, int[][]>> aligned = new TreeMap<>();
+            rows.forEach((country, states) -> {
+                SortedMap<String, int[][]> out = new TreeMap<>();
+                states.forEach((state, caseRows) ->
+                        out.put(state, toColumns(caseRows, days)));
+                aligned.put(country, rollUp(country, out));
+            });
+            SortedMap<String, int[][]> countryTotals = new TreeMap<>();
+            aligned.forEach((country, states) ->
+                    countryTotals.put(country, states.get(TOTAL)));
+            aligned.put(TOTAL, new TreeMap<>(Map.of(TOTAL, sum(countryTotals.values()))));
+
+            String[] countries = aligned.keySet().toArray(new String[0]);
+            String[] states = aligned.values().stream()
+                    .flatMap(s -> s.keySet().stream())
+                    .distinct()
+                    .sorted()
+                    .toArray(String[]::new);
+            Map<String, Integer> stateIds = new HashMap<>();
+            for (int i = 0; i < states.length; i++) {
+                stateIds.put(states[i], i);
+            }
+
+            int seriesCount = aligned.values().stream().mapToInt(Map::size).sum();
+            int[] seriesCountry = new int[seriesCount];
+            int[] seriesState = new int[seriesCount];
+            int[][][] columns = new int[seriesCount][][];
+            int[] columnStart = new int[seriesCount * CASE_TYPES];
+            int cells = 0;
+            double[] latitudes = new double[seriesCount];
+            double[] longitudes = new double[seriesCount];
+
+            int series = 0;
+            for (int c = 0; c < countries.length; c++) {
+                for (Map.Entry<String, int[][]> e : aligned.get(countries[c]).entrySet()) {
+                    seriesCountry[series] = c;
+                    seriesState[series] = stateIds.get(e.getKey());
+                    columns[series] = e.getValue();
+                    for (int t = 0; t < CASE_TYPES; t++) {
+                        boolean present = columns[series][t] != null;
+                        columnStart[series * CASE_TYPES + t] = present ? cells : -1;
+                        cells += present ? days.length : 0;
+                    }
+                    double[] location = location(countries[c], e.getKey());
+                    latitudes[series] = (location == null) ? Double.NaN : location[0];
+                    longitudes[series] = (location == null) ? Double.NaN : location[1];
+                    series++;
+                }
+            }
+
+            int[] values = new int[cells];
+            for (int i = 0; i < seriesCount; i++) {
+                for (int t = 0; t < CASE_TYPES; t++) {
+                    int start = columnStart[i * CASE_TYPES + t];
+                    if (start >= 0) {
+                        System.arraycopy(columns[i][t], 0, values, start, days.length);
+                    }
+                }
+            }
+            return new TimeSeriesStore(countries, states, seriesCountry, seriesState,
+                    days, IntBuffer.wrap(values), columnStart, latitudes, longitudes);
+        }
+
+        /**
+         * Returns the coordinates of the row that became {@code state}
+         * of {@code country} in {@link #rollUp}, or null if the series is
+         * a sum or its row had no coordinates.
+         */
+        private double[] location(String country, String state) {
+            Map<String, double[]> countryLocations = locations.get(country);
+            Map<String, int[][][]> countryRows = rows.get(country);
+            if (countryLocations == null || countryRows == null) {
+                return null;
+            }
+            if (countryRows.containsKey(state) && !state.isEmpty()) {
+                return countryLocations.get(state);
+            }
+            // The whole-country row is renamed to TOTAL if it is the only
+            // row, and to the country's name otherwise
+            boolean onlyRow = countryRows.size() == 1;
+            if (countryRows.containsKey("")
+                    && (state.equals(TOTAL) ? onlyRow : state.equals(country))) {
+                return countryLocations.get("");
+            }
+            return null;
+        }
+
+        /**
+         * Names the whole-country row of {@code states} and adds the
+         * country's {@link #TOTAL} state if it has more than one state.
+         */
+        private static SortedMap<String, int[][]> rollUp(
+                String country, SortedMap<String, int[][]> states) {
+            int[][] countryRow = states.remove("");
+            if (states.isEmpty()) {
+                states.put(TOTAL, countryRow);
+                return states;
+            }
+            if (countryRow != null) {
+                states.put(country, countryRow);
+            }
+            states.put(TOTAL, sum(states.values()));
+            return states;
+        }
+
+        /**
+         * Sums {@code series} column by column. A case type is present in
+         * the result if it is present in any of the summed series.
+         */
+        private static int[][] sum(Collection<int[][]> series) {
+            int[][] out = new int[CASE_TYPES][];
+            for (int[][] s : series) {
+                for (int t = 0; t < CASE_TYPES; t++) {
+                    int[] column = s[t];
+                    if (column == null) {
+                        continue;
+                    }
+                    if (out[t] == null) {
+                        out[t] = new int[column.length];
+                    }
+                    for (int d = 0; d < column.length; d++) {
+                        out[t][d] += column[d];
+                    }
+                }
+            }
+            return out;
+        }
+
+        private static int[][] toColumns(int[][][] caseRows, int[] days) {
+            int[][] out = new int[CASE_TYPES][];
+            for (int t = 0; t < CASE_TYPES; t++) {
+                if (caseRows[t] == null) {
+                    continue;
+                }
+                int[] rowDays = caseRows[t][0];
+                int[] rowValues = caseRows[t][1];
+                int[] column = new int[days.length];
+                for (int i = 0; i < rowDays.length; i++) {
+                    column[Arrays.binarySearch(days, rowDays[i])] = rowValues[i];
+                }
+                out[t] = column;
+            }
+            return out;
+        }
+    }
+}
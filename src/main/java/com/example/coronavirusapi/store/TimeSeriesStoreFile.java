@@ -0,0 +1,217 @@
+package com.example.coronavirusapi.store;
+
+import com.example.coronavirusapi.CaseType;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * Binary snapshot format for a compiled {@link TimeSeriesStore}.
+ *
+ * A file holds a header, the country and state dictionaries, the
+ * per-series dictionary IDs, the date axis, the per-series case type
+ * masks and coordinates, and last every value column back to back, all
+ * big-endian. Reading a file copies the sections before the values to
+ * the heap, which costs O(series), and leaves the values mapped: the
+ * store reads them straight from the file, pages are loaded as they are
+ * first read, and processes mapping the same file share them in the
+ * page cache. Files are only ever replaced by an atomic move, never
+ * rewritten in place, so a mapping stays valid after its file is replaced.
+ *
+ * The header carries a fingerprint of the sources the store was built
+ * from; a file whose fingerprint doesn't match is treated as stale.
+ * Every count is checked against the bytes left in the file before
+ * anything is allocated, so a corrupt file is rejected, not read.
+ */
+public final class TimeSeriesStoreFile {
+    private static final int MAGIC = 0x43565453; // "CVTS"
+    private static final int FORMAT_VERSION = 3;
+    private static final int CASE_TYPES = CaseType.values().length;
+
+    private TimeSeriesStoreFile() {
+    }
+
+    /**
+     * Writes {@code store} to {@code path}. The file is written next to
+     * {@code path} and moved into place, so readers never see a partial file.
+     */
+    public static void write(TimeSeriesStore store, long fingerprint, Path path)
+            throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path tmp = Files.createTempFile(path.toAbsolutePath().getParent(),
+                path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(fingerprint);
+
+                writeStrings(out, store.countries());
+                writeStrings(out, store.states());
+
+                int seriesCount = store.seriesCount();
+                out.writeInt(seriesCount);
+                for (int s = 0; s < seriesCount; s++) {
+                    out.writeInt(store.countryId(s));
+                }
+                for (int s = 0; s < seriesCount; s++) {
+                    out.writeInt(store.stateId(s));
+                }
+
+                out.writeInt(store.dayCount());
+                for (int d = 0; d < store.dayCount(); d++) {
+                    out.writeInt(store.day(d));
+                }
+
+                for (int s = 0; s < seriesCount; s++) {
+                    int present = 0;
+                    for (CaseType t : CaseType.values()) {
+                        present |= store.has(s, t) ? 1 << t.ordinal() : 0;
+                    }
+                    out.writeInt(present);
+                }
+                for (int s = 0; s < seriesCount; s++) {
+                    out.writeDouble(store.latitude(s));
+                }
+                for (int s = 0; s < seriesCount; s++) {
+                    out.writeDouble(store.longitude(s));
+                }
+
+                // Columns in the order of the masks, as the store holds them
+                IntBuffer values = store.values();
+                out.writeInt(values.remaining());
+                while (values.hasRemaining()) {
+                    out.writeInt(values.get());
+                }
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Reads the store at {@code path}, mapping its values.
+     *
+     * @return the store, or null if the file doesn't exist, is not a
+     *      valid store file, or was built from other sources
+     *      than {@code fingerprint} describes
+     */
+    public static TimeSeriesStore read(Path path, long fingerprint) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 16
+                    || buffer.getInt() != MAGIC
+                    || buffer.getInt() != FORMAT_VERSION
+                    || buffer.getLong() != fingerprint) {
+                return null;
+            }
+
+            String[] countries = readStrings(buffer);
+            String[] states = readStrings(buffer);
+
+            int seriesCount = buffer.getInt();
+            int[] seriesCountry = readInts(buffer, seriesCount);
+            int[] seriesState = readInts(buffer, seriesCount);
+
+            int dayCount = buffer.getInt();
+            int[] days = readInts(buffer, dayCount);
+
+            int[] masks = readInts(buffer, seriesCount);
+            double[] latitudes = readDoubles(buffer, seriesCount);
+            double[] longitudes = readDoubles(buffer, seriesCount);
+
+            int[] columnStart = new int[seriesCount * CASE_TYPES];
+            long cells = 0;
+            for (int s = 0; s < seriesCount; s++) {
+                for (int t = 0; t < CASE_TYPES; t++) {
+                    boolean present = (masks[s] & (1 << t)) != 0;
+                    columnStart[s * CASE_TYPES + t] = present ? (int) cells : -1;
+                    cells += present ? dayCount : 0;
+                    if (cells > Integer.MAX_VALUE) {
+                        return null;
+                    }
+                }
+            }
+            int valueCount = buffer.getInt();
+            if (valueCount != cells) {
+                return null;
+            }
+            checkRemaining(buffer, valueCount, Integer.BYTES);
+            ByteBuffer section = buffer.slice();
+            section.limit(valueCount * Integer.BYTES);
+            return new TimeSeriesStore(countries, states, seriesCountry, seriesState,
+                    days, section.asIntBuffer(), columnStart, latitudes, longitudes);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            // Truncated or corrupt file
+            return null;
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] strings)
+            throws IOException {
+        out.writeInt(strings.length);
+        for (String s : strings) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String[] readStrings(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        // Each string has at least its length
+        checkRemaining(buffer, count, Integer.BYTES);
+        String[] strings = new String[count];
+        for (int i = 0; i < strings.length; i++) {
+            int length = buffer.getInt();
+            checkRemaining(buffer, length, 1);
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        checkRemaining(buffer, count, Integer.BYTES);
+        int[] ints = new int[count];
+        IntBuffer view = buffer.asIntBuffer();
+        view.get(ints);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return ints;
+    }
+
+    private static double[] readDoubles(ByteBuffer buffer, int count) {
+        checkRemaining(buffer, count, Double.BYTES);
+        double[] doubles = new double[count];
+        buffer.asDoubleBuffer().get(doubles);
+        buffer.position(buffer.position() + count * Double.BYTES);
+        return doubles;
+    }
+
+    /**
+     * Checks that {@code buffer} has room for {@code count} items of
+     * {@code size} bytes, so a corrupt count can't trigger a huge or
+     * negative allocation.
+     * @throws BufferUnderflowException if it hasn't
+     */
+    private static void checkRemaining(ByteBuffer buffer, int count, int size) {
+        if (count < 0 || (long) count * size > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.coronavirusapi.store;
+
+import com.example.coronavirusapi.CaseType;
+
+/**
+ * Lazy view of the trends of the series and days matched by a query,
+ * for one case type.
+ *
+ * Like {@link QueryResult}, a trend result only references the store it
+ * was computed from. Its measures are derived on the fly with
+ * {@link Analytics} as the result is written out.
+ */
+public final class TrendResult {
+    private final TimeSeriesStore store;
+    private final String[] dateKeys;
+    private final int[] series;
+    private final int fromDayIndex;
+    private final int toDayIndex;
+    private final CaseType caseType;
+    private final int window;
+    private final boolean pretty;
+
+    TrendResult(TimeSeriesStore store, String[] dateKeys, int[] series,
+                int fromDayIndex, int toDayIndex, CaseType caseType,
+                int window, boolean pretty) {
+        this.store = store;
+        this.dateKeys = dateKeys;
+        this.series = series;
+        this.fromDayIndex = fromDayIndex;
+        this.toDayIndex = toDayIndex;
+        this.caseType = caseType;
+        this.window = window;
+        this.pretty = pretty;
+    }
+
+    /**
+     * Returns a copy of this result that is rendered
+     * with indentation if {@code pretty} is true.
+     */
+    public TrendResult prettyPrinted(boolean pretty) {
+        return new TrendResult(store, dateKeys, series,
+                fromDayIndex, toDayIndex, caseType, window, pretty);
+    }
+
+    public TimeSeriesStore store() {
+        return store;
+    }
+
+    /**
+     * Returns the IDs of the matched series, in ascending order.
+     * The returned array is shared and must not be modified.
+     */
+    public int[] series() {
+        return series;
+    }
+
+    public int fromDayIndex() {
+        return fromDayIndex;
+    }
+
+    public int toDayIndex() {
+        return toDayIndex;
+    }
+
+    public CaseType caseType() {
+        return caseType;
+    }
+
+    public boolean isPrettyPrinted() {
+        return pretty;
+    }
+
+    /**
+     * Returns the key used for day index {@code dayIndex} in responses.
+     */
+    public String dateKey(int dayIndex) {
+        return dateKeys[dayIndex];
+    }
+
+    public int newCases(int series, int dayIndex) {
+        return Analytics.newCases(store, series, caseType, dayIndex);
+    }
+
+    public double movingAverage(int series, int dayIndex) {
+        return Analytics.movingAverage(store, series, caseType, dayIndex, window);
+    }
+
+    public double growthRate(int series, int dayIndex) {
+        return Analytics.growthRate(store, series, caseType, dayIndex);
+    }
+
+    public double doublingTime(int series, int dayIndex) {
+        return Analytics.doublingTime(store, series, caseType, dayIndex, window);
+    }
+}
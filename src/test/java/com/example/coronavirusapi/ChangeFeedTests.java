@@ -0,0 +1,73 @@
+package com.example.coronavirusapi;
+
+import com.example.coronavirusapi.store.QueryEngine;
+import com.example.coronavirusapi.store.TimeSeriesStore;
+import com.fasterxml.jackson.core.JsonFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeFeedTests {
+
+    private final QueryResultHttpMessageConverter converter =
+            new QueryResultHttpMessageConverter(new JsonFactory(), new SimpleMeterRegistry());
+
+    private static DataSnapshot snapshot(String runId, long version, int confirmed) {
+        TimeSeriesStore store = new TimeSeriesStore.Builder()
+                .add("Italy", "", CaseType.CONFIRMED, new int[]{0}, new int[]{confirmed})
+                .build();
+        Map<Dataset, QueryEngine> timeSeries = new EnumMap<>(Dataset.class);
+        timeSeries.put(Dataset.LEGACY, new QueryEngine(store));
+        return new DataSnapshot(timeSeries, runId, version, 0);
+    }
+
+    @Test
+    void returnsChangesSinceAVersionOfThisRun() {
+        ChangeFeed feed = new ChangeFeed("a", converter, 8, 1000, 1);
+        feed.publish(snapshot("a", 1, 1), snapshot("a", 2, 2));
+        feed.publish(snapshot("a", 2, 2), snapshot("a", 3, 5));
+
+        Changes changes = feed.since("a:1", Dataset.LEGACY);
+        assertFalse(changes.isReset());
+        assertEquals("a:1", changes.fromVersion());
+        assertEquals("a:3", changes.toVersion());
+        assertEquals("Italy", changes.changes().country(0));
+        assertEquals(5, changes.changes().value(0));
+
+        assertEquals(0, feed.since("a:3", Dataset.LEGACY).changes().size());
+        // Older than the history, newer than the latest, or not loaded
+        assertTrue(feed.since("a:0", Dataset.LEGACY).isReset());
+        assertTrue(feed.since("a:4", Dataset.LEGACY).isReset());
+        assertTrue(feed.since("a:1", Dataset.GLOBAL).isReset());
+        feed.close();
+    }
+
+    @Test
+    void versionsOfAnEarlierRunAreReset() {
+        ChangeFeed before = new ChangeFeed("a", converter, 8, 1000, 1);
+        before.publish(snapshot("a", 1, 1), snapshot("a", 2, 2));
+        String lastSeen = before.since(null, Dataset.LEGACY).toVersion();
+        assertEquals("a:2", lastSeen);
+        before.close();
+
+        // After a restart, versions count up from 1 again
+        ChangeFeed after = new ChangeFeed("b", converter, 8, 1000, 1);
+        after.publish(snapshot("b", 1, 7), snapshot("b", 2, 9));
+
+        Changes changes = after.since(lastSeen, Dataset.LEGACY);
+        assertTrue(changes.isReset());
+        assertEquals("b:2", changes.toVersion());
+        assertTrue(after.since("a:1", Dataset.LEGACY).isReset());
+        assertFalse(after.since("b:1", Dataset.LEGACY).isReset());
+
+        // IDs without a run, and garbage
+        assertTrue(after.since("1", Dataset.LEGACY).isReset());
+        assertTrue(after.since("b:x", Dataset.LEGACY).isReset());
+        assertTrue(after.since(null, Dataset.LEGACY).isReset());
+        after.close();
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.coronavirusapi;
+
+import com.example.coronavirusapi.custom_exceptions.InvalidBatchException;
+import com.example.coronavirusapi.custom_exceptions.InvalidDateFormatException;
+import com.example.coronavirusapi.custom_exceptions.InvalidDateRangeException;
+import com.example.coronavirusapi.store.QueryEngine;
+import com.example.coronavirusapi.store.QueryResult;
+import com.example.coronavirusapi.store.TimeSeriesStore;
+import com.fasterxml.jackson.core.JsonFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CoronavirusApiControllerTests {
+
+    private static final int JAN_22 = (int) LocalDate.of(2020, 1, 22).toEpochDay();
+
+    private static CoronavirusApiController controller() {
+        return controller(new SimpleMeterRegistry());
+    }
+
+    // Italy's confirmed cases are 1, 4, 9 on January 22-24
+    private static CoronavirusApiController controller(SimpleMeterRegistry registry) {
+        TimeSeriesStore store = new TimeSeriesStore.Builder()
+                .add("Italy", "", CaseType.CONFIRMED,
+                        new int[]{JAN_22, JAN_22 + 1, JAN_22 + 2}, new int[]{1, 4, 9})
+                .build();
+        Map<Dataset, QueryEngine> timeSeries = new EnumMap<>(Dataset.class);
+        timeSeries.put(Dataset.LEGACY, new QueryEngine(store));
+        DataReloader data = mock(DataReloader.class);
+        when(data.current()).thenReturn(new DataSnapshot(timeSeries, "run", 1, 0));
+
+        ResponseCache cache = new ResponseCache(1 << 20, 1 << 16);
+        return new CoronavirusApiController(data, cache,
+                new QueryResultHttpMessageConverter(new JsonFactory(), new SimpleMeterRegistry()),
+                new ApiMetrics(registry, cache), 10, 1 << 20);
+    }
+
+    private static String confirmed(String from, String to, boolean daily) throws Exception {
+        return confirmed(controller(), from, to, daily);
+    }
+
+    private static String confirmed(CoronavirusApiController controller,
+                                    String from, String to, boolean daily) throws Exception {
+        ServletWebRequest request = new ServletWebRequest(
+                new MockHttpServletRequest(), new MockHttpServletResponse());
+        ResponseEntity<?> response = controller.confirmed(
+                "", from, to, "Italy", "", daily, false, "legacy", request);
+        return new String((byte[]) response.getBody(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void dateRangesAcceptBothFormatsAndOpenEnds() {
+        assertArrayEquals(new int[]{JAN_22, JAN_22},
+                CoronavirusApiController.checkInputValid("01222020", "", "", "", ""));
+        assertArrayEquals(new int[]{JAN_22, JAN_22 + 2},
+                CoronavirusApiController.checkInputValid("", "2020-01-22", "01242020", "", ""));
+        assertArrayEquals(new int[]{JAN_22 + 1, Integer.MAX_VALUE},
+                CoronavirusApiController.checkInputValid("", "2020-01-23", "", "", ""));
+        assertArrayEquals(new int[]{Integer.MIN_VALUE, Integer.MAX_VALUE},
+                CoronavirusApiController.checkInputValid("total", "", "", "", ""));
+    }
+
+    @Test
+    void invalidDateRangesAreRejected() {
+        assertThrows(InvalidDateRangeException.class, () ->
+                CoronavirusApiController.checkInputValid("2020-01-22", "2020-01-22", "", "", ""));
+        assertThrows(InvalidDateRangeException.class, () ->
+                CoronavirusApiController.checkInputValid("", "2020-01-24", "2020-01-23", "", ""));
+        assertThrows(InvalidDateFormatException.class, () ->
+                CoronavirusApiController.checkInputValid("", "2020-13-01", "", "", ""));
+    }
+
+    @Test
+    void rangesSelectDaysAndDailyValuesAreNewCases() throws Exception {
+        assertEquals("{\"Italy\":{\"total\":{\"2020-01-23\":{\"confirmed\":4},"
+                        + "\"2020-01-24\":{\"confirmed\":9}}}}",
+                confirmed("2020-01-23", "", false));
+        // The first day's new cases count from the day before the range
+        assertEquals("{\"Italy\":{\"total\":{\"2020-01-23\":{\"confirmed\":3}}}}",
+                confirmed("2020-01-23", "2020-01-23", true));
+        assertEquals("{\"Italy\":{\"total\":{\"2020-01-22\":{\"confirmed\":1},"
+                        + "\"2020-01-23\":{\"confirmed\":3},\"2020-01-24\":{\"confirmed\":5}}}}",
+                confirmed("", "", true));
+        // A range without loaded days matches nothing
+        assertEquals("{}", confirmed("2020-02-01", "", false));
+    }
+
+    private static BatchSelector selector(String country, String state, String caseType,
+                                          String from, String dataset) {
+        BatchSelector selector = new BatchSelector();
+        selector.setCountry(country);
+        selector.setState(state);
+        selector.setCaseType(caseType);
+        selector.setFrom(from);
+        selector.setDataset(dataset);
+        return selector;
+    }
+
+    @Test
+    void batchResolvesEachSelectorAndReportsErrorsPerItem() {
+        BatchSelector daily = selector("italy", "", "", "2020-01-24", "legacy");
+        daily.setDaily(true);
+        BatchResult batch = controller().batch(Arrays.asList(
+                selector("Italy", "", "confirmed", "2020-01-23", "legacy"),
+                selector("Italy", "", "", "2020-13-01", "legacy"),
+                selector("total", "Lombardy", "", "", "legacy"),
+                selector("Italy", "", "cured", "", "legacy"),
+                selector("Italy", "", "", "", "nope"),
+                daily), false);
+
+        assertEquals(6, batch.size());
+        QueryResult ranged = batch.result(0);
+        assertNull(batch.error(0));
+        assertEquals(1, ranged.series().length);
+        assertEquals("Italy", ranged.store().country(ranged.series()[0]));
+        assertArrayEquals(new CaseType[]{CaseType.CONFIRMED}, ranged.caseTypes());
+        assertEquals("2020-01-23", ranged.dateKey(ranged.fromDayIndex()));
+        assertEquals(2, ranged.toDayIndex() - ranged.fromDayIndex());
+
+        // Invalid selectors fail alone, in request order
+        assertNull(batch.result(1));
+        assertTrue(batch.error(1).startsWith("Invalid date format"), batch.error(1));
+        assertTrue(batch.error(2).contains("`country`"), batch.error(2));
+        assertTrue(batch.error(3).contains("`caseType`"), batch.error(3));
+        assertTrue(batch.error(4).contains("`dataset`"), batch.error(4));
+
+        // Selectors are case-insensitive and may ask for daily values
+        QueryResult last = batch.result(5);
+        assertTrue(last.isDaily());
+        assertEquals(5, last.value(last.series()[0], CaseType.CONFIRMED, last.fromDayIndex()));
+    }
+
+    @Test
+    void nullBatchItemsAreErrorItems() {
+        BatchResult batch = controller().batch(Arrays.asList(
+                null, selector("Italy", "", "", "", "legacy")), false);
+
+        assertEquals(2, batch.size());
+        assertNull(batch.result(0));
+        assertTrue(batch.error(0).contains("not null"), batch.error(0));
+        assertNull(batch.error(1));
+        assertNotNull(batch.result(1));
+    }
+
+    @Test
+    void batchSizeIsBounded() {
+        CoronavirusApiController controller = controller();
+        assertThrows(InvalidBatchException.class, () ->
+                controller.batch(Collections.emptyList(), false));
+        List<BatchSelector> selectors = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            selectors.add(new BatchSelector());
+        }
+        assertThrows(InvalidBatchException.class, () -> controller.batch(selectors, false));
+        assertEquals(10, controller.batch(selectors.subList(0, 10), false).size());
+    }
+
+    @Test
+    void queriesAndBatchesAreRecordedByShape() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CoronavirusApiController controller = controller(registry);
+        confirmed(controller, "2020-01-23", "", false);
+        confirmed(controller, "2020-01-23", "", false);
+
+        assertEquals(2, registry.get("coronavirus.query")
+                .tags("endpoint", "confirmed", "region", "country", "dates", "range")
+                .timer().count());
+        assertEquals(0, registry.get("coronavirus.query")
+                .tags("endpoint", "confirmed", "region", "any", "dates", "range")
+                .timer().count());
+        // Only the miss computes a result; the second request is a hit
+        assertEquals(1, registry.get("coronavirus.query.series")
+                .tag("endpoint", "confirmed").summary().count());
+        assertEquals(2, registry.get("coronavirus.query.cells")
+                .tag("endpoint", "confirmed").summary().totalAmount());
+        assertEquals(1, registry.get("coronavirus.responses").tag("outcome", "miss").counter().count());
+        assertEquals(1, registry.get("coronavirus.responses").tag("outcome", "hit").counter().count());
+
+        controller.batch(Arrays.asList(
+                selector("Italy", "", "", "", "legacy"),
+                selector("Italy", "", "", "2020-13-01", "legacy"),
+                null), false);
+        assertEquals(1, registry.get("coronavirus.batch").timer().count());
+        assertEquals(1, registry.get("coronavirus.batch.size").summary().count());
+        assertEquals(3, registry.get("coronavirus.batch.size").summary().totalAmount());
+        assertEquals(1, registry.get("coronavirus.validation.failures")
+                .tag("exception", "InvalidDateFormatException").counter().count());
+        assertEquals(1, registry.get("coronavirus.validation.failures")
+                .tag("exception", "InvalidSelectorException").counter().count());
+    }
+
+    @Test
+    void gzipIsAcceptedOnlyWithNonzeroQuality() {
+        assertTrue(CoronavirusApiController.acceptsGzip("gzip, deflate, br"));
+        assertTrue(CoronavirusApiController.acceptsGzip("deflate;q=1, GZIP;q=0.5"));
+        assertTrue(CoronavirusApiController.acceptsGzip("*"));
+        assertFalse(CoronavirusApiController.acceptsGzip(null));
+        assertFalse(CoronavirusApiController.acceptsGzip("identity"));
+        assertFalse(CoronavirusApiController.acceptsGzip("gzip;q=0"));
+        assertFalse(CoronavirusApiController.acceptsGzip("gzip ; q=0.000, deflate"));
+        assertFalse(CoronavirusApiController.acceptsGzip("identity, *;q=0"));
+
+        // An explicit gzip entry overrides the wildcard
+        assertFalse(CoronavirusApiController.acceptsGzip("*, gzip;q=0"));
+        assertTrue(CoronavirusApiController.acceptsGzip("*;q=0, gzip"));
+    }
+}
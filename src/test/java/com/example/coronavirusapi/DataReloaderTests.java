@@ -0,0 +1,88 @@
+package com.example.coronavirusapi;
+
+import com.example.coronavirusapi.store.TimeSeriesStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataReloaderTests {
+
+    private static final String HEADER = "Province/State,Country/Region,Lat,Long,1/22/20,1/23/20\n";
+
+    private static void writeConfirmed(Path dataDir, String csv) throws IOException {
+        Path dir = dataDir.resolve(TimeSeriesLoader.TIME_SERIES_DIR);
+        Files.createDirectories(dir);
+        Files.write(dir.resolve(Dataset.LEGACY.fileName(CaseType.CONFIRMED)),
+                csv.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static DataReloader reloader(Path dataDir) {
+        return new DataReloader(new DefaultResourceLoader(), dataDir.toString(), 10, "",
+                new SimpleMeterRegistry());
+    }
+
+    private static int italy(DataSnapshot snapshot, int dayIndex) {
+        TimeSeriesStore store = snapshot.timeSeries(Dataset.LEGACY).store();
+        return store.value(store.findSeries("Italy", TimeSeriesStore.TOTAL),
+                CaseType.CONFIRMED, dayIndex);
+    }
+
+    @Test
+    void reloadSwapsInANewSnapshotAndLeavesTheOldOneIntact(@TempDir Path dir) throws IOException {
+        writeConfirmed(dir, HEADER + ",Italy,41.9,12.6,1,2\n");
+        DataReloader data = reloader(dir);
+        DataSnapshot first = data.current();
+        assertEquals(1, first.version());
+        assertEquals(2, italy(first, 1));
+
+        List<DataSnapshot[]> published = new ArrayList<>();
+        data.addListener((previous, snapshot) -> published.add(new DataSnapshot[]{previous, snapshot}));
+        // A failing listener doesn't undo the swap or stop other listeners
+        data.addListener((previous, snapshot) -> {
+            throw new IllegalStateException("listener failed");
+        });
+
+        writeConfirmed(dir, HEADER + ",Italy,41.9,12.6,1,5\n");
+        DataSnapshot second = data.reload();
+        assertSame(second, data.current());
+        assertEquals(2, second.version());
+        assertEquals(first.runId(), second.runId());
+        assertEquals(5, italy(second, 1));
+
+        // Requests still holding the first snapshot keep seeing its data
+        assertEquals(2, italy(first, 1));
+        assertEquals(1, published.size());
+        assertSame(first, published.get(0)[0]);
+        assertSame(second, published.get(0)[1]);
+    }
+
+    @Test
+    void failedReloadKeepsServingThePreviousSnapshot(@TempDir Path dir) throws IOException {
+        writeConfirmed(dir, HEADER + ",Italy,41.9,12.6,1,2\n");
+        DataReloader data = reloader(dir);
+        DataSnapshot first = data.current();
+        List<DataSnapshot> published = new ArrayList<>();
+        data.addListener((previous, snapshot) -> published.add(snapshot));
+
+        // No Country/Region column
+        writeConfirmed(dir, "Province/State,Lat,Long,1/22/20\n,41.9,12.6,1\n");
+        assertThrows(IllegalArgumentException.class, data::reload);
+        assertSame(first, data.current());
+        assertTrue(published.isEmpty());
+
+        // The next good load continues from the last published version
+        writeConfirmed(dir, HEADER + ",Italy,41.9,12.6,1,3\n");
+        assertEquals(2, data.reload().version());
+        assertEquals(3, italy(data.current(), 1));
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.coronavirusapi;
+
+import com.example.coronavirusapi.store.QueryEngine;
+import com.example.coronavirusapi.store.QueryResult;
+import com.example.coronavirusapi.store.TimeSeriesStore;
+import com.fasterxml.jackson.core.JsonFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GeoControllerTests {
+
+    private static GeoController controller() {
+        TimeSeriesStore.Builder builder = new TimeSeriesStore.Builder();
+        String[][] regions = {
+                {"Italy", "41.9", "12.6"},
+                {"France", "46.2", "2.2"},
+                {"Spain", "40.4", "-3.7"},
+                {"Germany", "51.2", "10.4"}
+        };
+        for (String[] region : regions) {
+            builder.add(region[0], "", CaseType.CONFIRMED, new int[]{0}, new int[]{1});
+            builder.locate(region[0], "",
+                    Double.parseDouble(region[1]), Double.parseDouble(region[2]));
+        }
+        Map<Dataset, QueryEngine> timeSeries = new EnumMap<>(Dataset.class);
+        timeSeries.put(Dataset.LEGACY, new QueryEngine(builder.build()));
+
+        DataReloader data = mock(DataReloader.class);
+        when(data.current()).thenReturn(new DataSnapshot(timeSeries, "run", 1, 0));
+        return new GeoController(data);
+    }
+
+    @Test
+    void nearestReturnsRegionsClosestFirstWithDistances() throws Exception {
+        ServletWebRequest request = new ServletWebRequest(
+                new MockHttpServletRequest(), new MockHttpServletResponse());
+        // Near Paris
+        ResponseEntity<?> response = controller().nearest(48.9, 2.35, 3,
+                "", "", "", "", false, false, false, "legacy", request);
+
+        QueryResult result = (QueryResult) response.getBody();
+        assertNotNull(result);
+        TimeSeriesStore store = result.store();
+        String[] countries = new String[result.series().length];
+        for (int i = 0; i < countries.length; i++) {
+            countries[i] = store.country(result.series()[i]);
+        }
+        assertArrayEquals(new String[]{"France", "Germany", "Spain"}, countries);
+        assertEquals(300, result.distances()[0], 5);
+        assertEquals(629, result.distances()[1], 5);
+        assertEquals(1059, result.distances()[2], 5);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new QueryResultHttpMessageConverter(new JsonFactory(), new SimpleMeterRegistry())
+                .write(result, out);
+        String json = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(json.startsWith("[{\"country\":\"France\",\"state\":\"total\",\"distanceKm\":"), json);
+        assertTrue(json.indexOf("Germany") < json.indexOf("Spain"), json);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.coronavirusapi;
+
+import com.example.coronavirusapi.store.QueryEngine;
+import com.example.coronavirusapi.store.QueryResult;
+import com.example.coronavirusapi.store.TimeSeriesStore;
+import com.fasterxml.jackson.core.JsonFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryResultHttpMessageConverterTests {
+
+    private final QueryResultHttpMessageConverter converter =
+            new QueryResultHttpMessageConverter(new JsonFactory(), new SimpleMeterRegistry());
+
+    private static QueryResult result() {
+        TimeSeriesStore store = new TimeSeriesStore.Builder()
+                .add("Korea, South", "", CaseType.CONFIRMED, new int[]{10, 11}, new int[]{1, 300})
+                .add("Korea, South", "", CaseType.DEATHS, new int[]{10, 11}, new int[]{0, 2})
+                .build();
+        QueryEngine engine = new QueryEngine(store);
+        return engine.query(10, 11, "Korea, South", QueryEngine.ANY, null, false);
+    }
+
+    private byte[] write(ResponseFormat format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        converter.write(result(), format, out);
+        return out.toByteArray();
+    }
+
+    @Test
+    void writesColumnarJsonAndCsv() throws IOException {
+        assertEquals("{\"dates\":[\"1970-01-11\",\"1970-01-12\"],\"series\":[{\"country\":\"Korea, South\","
+                        + "\"state\":\"total\",\"confirmed\":[1,300],\"deaths\":[0,2]}]}",
+                new String(write(ResponseFormat.COLUMNAR), StandardCharsets.UTF_8));
+        assertEquals("country,state,date,confirmed,deaths,recovered\n"
+                        + "\"Korea, South\",total,1970-01-11,1,0,\n"
+                        + "\"Korea, South\",total,1970-01-12,300,2,\n",
+                new String(write(ResponseFormat.CSV), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void writesDeltaEncodedBinary() throws IOException {
+        byte[] bytes = write(ResponseFormat.BINARY);
+        int header = 4 + 1 + 1     // magic, version, daily
+                + 1 + 1 + 1        // dayCount, first day, gap
+                + 1 + 10 + 7 + 10; // case types
+        assertEquals('C', bytes[0]);
+        assertEquals(2, bytes[6]);
+        assertEquals(20, bytes[7]); // zigzag 10
+        assertEquals(1, bytes[8]);
+        assertEquals(1, bytes[header]); // one series
+
+        int series = header + 1 + 13 + 6;
+        assertEquals(0b011, bytes[series]);
+        // confirmed 1, +299 (zigzag 598 takes two bytes); deaths 0, +2
+        assertArrayEquals(new byte[]{2, (byte) 0xD6, 0x04, 0, 4},
+                Arrays.copyOfRange(bytes, series + 1, bytes.length));
+    }
+
+    @Test
+    void negotiatesByAcceptHeader() throws HttpMediaTypeNotAcceptableException {
+        assertEquals(ResponseFormat.JSON, ResponseFormat.negotiate(null));
+        assertEquals(ResponseFormat.JSON, ResponseFormat.negotiate("*/*"));
+        assertEquals(ResponseFormat.CSV, ResponseFormat.negotiate("text/csv, */*;q=0.1"));
+        assertEquals(ResponseFormat.COLUMNAR, ResponseFormat.negotiate(
+                "application/json;q=0.5, application/vnd.coronavirus.columnar+json"));
+        assertThrows(HttpMediaTypeNotAcceptableException.class,
+                () -> ResponseFormat.negotiate("image/png"));
+
+        assertTrue(converter.canWrite(QueryResult.class, ResponseFormat.BINARY.mediaType()));
+        assertFalse(converter.canWrite(BatchResult.class, ResponseFormat.CSV.mediaType()));
+        assertTrue(converter.canWrite(BatchResult.class, MediaType.APPLICATION_JSON));
+    }
+}
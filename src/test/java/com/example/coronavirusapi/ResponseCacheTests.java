@@ -0,0 +1,81 @@
+package com.example.coronavirusapi;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTests {
+
+    @Test
+    void entriesAreEvictedBySizeInLruOrder() {
+        ResponseCache cache = new ResponseCache(1000, 400);
+        cache.put("a", 1, new byte[200]);
+        cache.put("b", 1, new byte[200]);
+        assertNotNull(cache.get("a", 1));
+
+        // "b" is now least recently used
+        cache.put("c", 1, new byte[200]);
+        assertNotNull(cache.get("a", 1));
+        assertNull(cache.get("b", 1));
+        assertNotNull(cache.get("c", 1));
+        assertTrue(cache.size() <= 1000);
+    }
+
+    @Test
+    void oversizedEntriesAreNotCached() {
+        ResponseCache cache = new ResponseCache(1000, 100);
+        ResponseCache.Entry entry = cache.put("a", 1, new byte[101]);
+        assertEquals(101, entry.body().length);
+        // Left to the server to compress
+        assertNull(entry.gzip());
+        assertNull(cache.get("a", 1));
+    }
+
+    @Test
+    void largeCachesAreSplitIntoSegments() {
+        assertEquals(1, new ResponseCache(1000, 400).segmentCount());
+        ResponseCache cache = new ResponseCache(1 << 20, 1 << 10);
+        assertEquals(ResponseCache.MAX_SEGMENTS, cache.segmentCount());
+
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, 1, new byte[100]);
+        }
+        long size = cache.size();
+        for (int i = 0; i < 100; i++) {
+            assertNotNull(cache.get("key" + i, 1));
+        }
+        assertTrue(size > 100 * 100);
+
+        // Every segment is invalidated by a newer version
+        cache.put("key0", 2, new byte[100]);
+        for (int i = 1; i < 100; i++) {
+            assertNull(cache.get("key" + i, 2));
+        }
+        assertTrue(cache.size() < size);
+    }
+
+    @Test
+    void newerVersionInvalidatesEntries() {
+        ResponseCache cache = new ResponseCache(1000, 400);
+        cache.put("a", 1, new byte[10]);
+        assertNull(cache.get("a", 2));
+
+        // Entries rendered from an older version are dropped
+        cache.put("a", 1, new byte[10]);
+        assertNull(cache.get("a", 2));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void gzipRoundTrips() throws IOException {
+        byte[] json = "{\"a\":1}".getBytes();
+        ResponseCache.Entry entry = new ResponseCache(1000, 400).put("a", 1, json);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(entry.gzip()))) {
+            assertArrayEquals(json, in.readAllBytes());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.coronavirusapi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTests {
+
+    @Test
+    void concurrentCallersShareOneComputation() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            Future<Integer> leader = pool.submit(() -> flight.execute("a", () -> {
+                runs.incrementAndGet();
+                started.countDown();
+                await(release);
+                return 42;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            List<Future<Integer>> followers = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                followers.add(pool.submit(() -> flight.execute("a", runs::incrementAndGet)));
+            }
+            // Give the followers time to join the in-flight computation
+            Thread.sleep(200);
+            assertTrue(followers.stream().noneMatch(Future::isDone));
+            release.countDown();
+
+            assertEquals(42, leader.get(5, TimeUnit.SECONDS));
+            for (Future<Integer> follower : followers) {
+                assertEquals(42, follower.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, runs.get());
+            assertEquals(0, flight.size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void failuresAreNotRemembered() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        assertThrows(IllegalStateException.class, () -> flight.execute("a", () -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals(1, flight.execute("a", () -> 1));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.coronavirusapi.store;
+
+import com.example.coronavirusapi.CaseType;
+import com.example.coronavirusapi.Metric;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalyticsTests {
+
+    @Test
+    void measuresAreDerivedFromCumulativeCounts() {
+        int[] days = {0, 1, 2, 3};
+        TimeSeriesStore store = new TimeSeriesStore.Builder()
+                .add("Italy", "", CaseType.CONFIRMED, days, new int[]{0, 10, 20, 40})
+                .build();
+
+        assertEquals(20, Analytics.newCases(store, 0, CaseType.CONFIRMED, 3));
+        assertEquals(15.0, Analytics.movingAverage(store, 0, CaseType.CONFIRMED, 3, 2));
+        assertEquals(10.0, Analytics.movingAverage(store, 0, CaseType.CONFIRMED, 3, 4));
+        assertEquals(1.0, Analytics.growthRate(store, 0, CaseType.CONFIRMED, 3));
+        assertTrue(Double.isNaN(Analytics.growthRate(store, 0, CaseType.CONFIRMED, 1)));
+        // Quadrupled in two days
+        assertEquals(1.0, Analytics.doublingTime(store, 0, CaseType.CONFIRMED, 3, 2), 1e-9);
+        assertTrue(Double.isNaN(Analytics.doublingTime(store, 0, CaseType.CONFIRMED, 1, 2)));
+    }
+
+    @Test
+    void topKeepsHighestScoresInOrder() {
+        int[] series = {0, 1, 2, 3, 4, 5};
+        double[] scores = {3, Double.NaN, 9, 1, 9, 5};
+
+        assertArrayEquals(new int[]{2, 4, 5}, Analytics.top(series, 3, s -> scores[s]));
+        assertArrayEquals(new int[]{2, 4, 5, 0, 3}, Analytics.top(series, 10, s -> scores[s]));
+        assertEquals(0, Analytics.top(series, 0, s -> scores[s]).length);
+    }
+
+    @Test
+    void topRanksCountriesOrStatesOfACountry() {
+        int[] days = {0};
+        QueryEngine engine = new QueryEngine(new TimeSeriesStore.Builder()
+                .add("US", "Washington", CaseType.CONFIRMED, days, new int[]{5})
+                .add("US", "New York", CaseType.CONFIRMED, days, new int[]{8})
+                .add("Italy", "", CaseType.CONFIRMED, days, new int[]{20})
+                .build());
+        TimeSeriesStore store = engine.store();
+
+        int[] countries = engine.top(QueryEngine.ANY, 0, CaseType.CONFIRMED, Metric.TOTAL, 7, 10);
+        assertEquals(2, countries.length);
+        assertEquals("Italy", store.country(countries[0]));
+        assertEquals("US", store.country(countries[1]));
+        assertEquals(TimeSeriesStore.TOTAL, store.state(countries[1]));
+
+        int[] states = engine.top("us", 0, CaseType.CONFIRMED, Metric.TOTAL, 7, 1);
+        assertEquals(1, states.length);
+        assertEquals("New York", store.state(states[0]));
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.coronavirusapi.store;
+
+import com.example.coronavirusapi.CaseType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeSetTests {
+
+    @Test
+    void betweenFindsChangedAddedAndRemovedCells() {
+        TimeSeriesStore before = new TimeSeriesStore.Builder()
+                .add("Italy", "", CaseType.CONFIRMED, new int[]{0, 1}, new int[]{1, 2})
+                .add("Italy", "", CaseType.DEATHS, new int[]{0, 1}, new int[]{0, 1})
+                .build();
+        TimeSeriesStore after = new TimeSeriesStore.Builder()
+                .add("italy", "", CaseType.CONFIRMED, new int[]{0, 1, 2}, new int[]{1, 3, 4})
+                .build();
+        ChangeSet changes = ChangeSet.between(before, after);
+
+        // italy/total confirmed: day 1 changed, day 2 added; total/total
+        // likewise; then Italy/total and total/total deaths removed
+        assertEquals(8, changes.size());
+        assertEquals("italy", changes.country(0));
+        assertEquals(1, changes.day(0));
+        assertEquals(3, changes.value(0));
+        assertEquals(2, changes.day(1));
+        assertEquals(4, changes.value(1));
+        assertFalse(changes.isRemoved(1));
+
+        assertEquals("Italy", changes.country(4));
+        assertEquals(CaseType.DEATHS, changes.caseType(4));
+        assertTrue(changes.isRemoved(4));
+
+        assertEquals(0, ChangeSet.between(after, after).size());
+    }
+
+    @Test
+    void mergeKeepsTheLastValueOfEachCell() {
+        TimeSeriesStore v1 = new TimeSeriesStore.Builder()
+                .add("Italy", "", CaseType.CONFIRMED, new int[]{0}, new int[]{1})
+                .build();
+        TimeSeriesStore v2 = new TimeSeriesStore.Builder()
+                .add("Italy", "", CaseType.CONFIRMED, new int[]{0}, new int[]{2})
+                .build();
+        TimeSeriesStore v3 = new TimeSeriesStore.Builder()
+                .add("Italy", "", CaseType.CONFIRMED, new int[]{0}, new int[]{5})
+                .add("Spain", "", CaseType.CONFIRMED, new int[]{0}, new int[]{7})
+                .build();
+        ChangeSet merged = ChangeSet.merge(Arrays.asList(
+                ChangeSet.between(v1, v2), ChangeSet.between(v2, v3)));
+
+        // Italy/total and total/total from both, Spain/total from the second
+        assertEquals(3, merged.size());
+        assertEquals(5, merged.value(0));
+        assertEquals("Spain", merged.country(2));
+        assertEquals(7, merged.value(2));
+    }
+}
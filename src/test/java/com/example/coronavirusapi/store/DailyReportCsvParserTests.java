@@ -0,0 +1,63 @@
+package com.example.coronavirusapi.store;
+
+import com.example.coronavirusapi.CaseType;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DailyReportCsvParserTests {
+
+    private static DailyReport parse(String csv) throws IOException {
+        return DailyReportCsvParser.parse(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), 18283);
+    }
+
+    private static long epochSecond(int year, int month, int day, int hour, int minute, int second) {
+        return LocalDateTime.of(year, month, day, hour, minute, second).toEpochSecond(ZoneOffset.UTC);
+    }
+
+    @Test
+    void parsesEarlyReports() throws IOException {
+        DailyReport report = parse("﻿"
+                + "Province/State,Country/Region,Last Update,Confirmed,Deaths,Recovered\r\n"
+                + "Beijing,Mainland China,1/22/2020 17:00,14,,\r\n"
+                + "\"Chicago, IL\",US,2/1/20 19:43,2,0,0\r\n"
+                + "Anhui,Mainland China,1/22/2020 9:00,1,,\r\n");
+
+        assertEquals(3, report.rowCount());
+        // Sorted by country, then state
+        assertEquals("Anhui", report.state(0));
+        assertEquals("Beijing", report.state(1));
+        assertEquals("Chicago, IL", report.state(2));
+
+        assertEquals(epochSecond(2020, 1, 22, 9, 0, 0), report.lastUpdate(0));
+        assertEquals(epochSecond(2020, 2, 1, 19, 43, 0), report.lastUpdate(2));
+        assertEquals(14, report.value(1, CaseType.CONFIRMED));
+        assertFalse(report.has(1, CaseType.DEATHS));
+        assertTrue(report.has(2, CaseType.DEATHS));
+        assertFalse(report.hasLocation(0));
+    }
+
+    @Test
+    void parsesLaterReports() throws IOException {
+        DailyReport report = parse(
+                "Province/State,Country/Region,Last Update,Confirmed,Deaths,Recovered,Latitude,Longitude\n"
+                        + ",Italy,2020-03-22T18:13:20,59138,5476,7024,41.8719,12.5674\n"
+                        + "Hubei,China,bad date,67800,3144,59433,30.9756,112.2707\n");
+
+        assertEquals("China", report.country(0));
+        assertEquals(DailyReport.NO_UPDATE, report.lastUpdate(0));
+        assertEquals(epochSecond(2020, 3, 22, 18, 13, 20), report.lastUpdate(1));
+        assertEquals(12.5674, report.longitude(1));
+
+        assertArrayEquals(new int[]{1}, report.select("italy", "ITALY"));
+        assertArrayEquals(new int[]{0, 1}, report.select("", ""));
+        assertEquals(0, report.select("Spain", "").length);
+    }
+}
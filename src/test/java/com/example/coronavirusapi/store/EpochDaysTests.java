@@ -0,0 +1,40 @@
+package com.example.coronavirusapi.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EpochDaysTests {
+
+    @Test
+    void parsesBothForms() {
+        int day = (int) LocalDate.of(2020, 3, 1).toEpochDay();
+        assertEquals(day, EpochDays.parse("03012020"));
+        assertEquals(day, EpochDays.parse("2020-03-01"));
+        assertEquals((int) LocalDate.of(2020, 2, 29).toEpochDay(), EpochDays.parse("02292020"));
+    }
+
+    @Test
+    void rejectsInvalidDates() {
+        assertEquals(EpochDays.INVALID, EpochDays.parse("02302020"));
+        assertEquals(EpochDays.INVALID, EpochDays.parse("02292021"));
+        assertEquals(EpochDays.INVALID, EpochDays.parse("13012020"));
+        assertEquals(EpochDays.INVALID, EpochDays.parse("2020-00-10"));
+        assertEquals(EpochDays.INVALID, EpochDays.parse("2020/03/01"));
+        assertEquals(EpochDays.INVALID, EpochDays.parse("3012020"));
+        assertEquals(EpochDays.INVALID, EpochDays.parse("0301202x"));
+    }
+
+    @Test
+    void formatsLikeIsoLocalDate() {
+        for (int day = -800_000; day <= 800_000; day += 997) {
+            LocalDate date = LocalDate.ofEpochDay(day);
+            if (date.getYear() >= 0 && date.getYear() <= 9999) {
+                assertEquals(date.toString(), EpochDays.format(day));
+                assertEquals(day, EpochDays.of(date.getYear(), date.getMonthValue(), date.getDayOfMonth()));
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.coronavirusapi.store;
+
+import com.example.coronavirusapi.CaseType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialIndexTests {
+
+    private static TimeSeriesStore store() {
+        TimeSeriesStore.Builder builder = new TimeSeriesStore.Builder();
+        String[][] regions = {
+                {"Italy", "", "41.9", "12.6"},
+                {"France", "", "46.2", "2.2"},
+                {"Fiji", "", "-17.7", "178.1"},
+                {"Samoa", "", "-13.8", "-172.1"},
+                {"US", "Washington", "47.4", "-121.5"},
+                {"US", "New York", "42.2", "-74.9"},
+                {"Unknown", "", "0", "0"}
+        };
+        for (String[] region : regions) {
+            builder.add(region[0], region[1], CaseType.CONFIRMED, new int[]{0}, new int[]{1});
+            builder.locate(region[0], region[1],
+                    Double.parseDouble(region[2]), Double.parseDouble(region[3]));
+        }
+        return builder.build();
+    }
+
+    // Countries with a single row keep it as their TOTAL series, which is
+    // then located; countries with states have an unlocated rollup
+    @Test
+    void rollupsAndUnassignedRegionsAreNotIndexed() {
+        TimeSeriesStore store = store();
+        SpatialIndex index = new SpatialIndex(store);
+
+        assertEquals(6, index.size());
+        assertFalse(store.hasLocation(store.findSeries("US", TimeSeriesStore.TOTAL)));
+        assertFalse(store.hasLocation(store.findSeries("Unknown", TimeSeriesStore.TOTAL)));
+        assertEquals(12.6, store.longitude(store.findSeries("Italy", TimeSeriesStore.TOTAL)));
+    }
+
+    @Test
+    void withinSplitsBoxesAtTheAntimeridian() {
+        TimeSeriesStore store = store();
+        SpatialIndex index = new SpatialIndex(store);
+
+        assertArrayEquals(new int[]{
+                store.findSeries("France", TimeSeriesStore.TOTAL),
+                store.findSeries("Italy", TimeSeriesStore.TOTAL)
+        }, index.within(35, 50, -10, 20));
+        assertArrayEquals(new int[]{
+                store.findSeries("Fiji", TimeSeriesStore.TOTAL),
+                store.findSeries("Samoa", TimeSeriesStore.TOTAL)
+        }, index.within(-20, -10, 170, -170));
+    }
+
+    @Test
+    void nearestIsOrderedByGreatCircleDistance() {
+        TimeSeriesStore store = store();
+        SpatialIndex index = new SpatialIndex(store);
+
+        // Fiji and Samoa are close across the antimeridian
+        assertArrayEquals(new int[]{
+                store.findSeries("Samoa", TimeSeriesStore.TOTAL),
+                store.findSeries("Fiji", TimeSeriesStore.TOTAL)
+        }, index.nearest(-14, -175, 2));
+        assertArrayEquals(new int[]{
+                store.findSeries("Italy", TimeSeriesStore.TOTAL),
+                store.findSeries("France", TimeSeriesStore.TOTAL),
+                store.findSeries("US", "New York")
+        }, index.nearest(42, 13, 3));
+        assertEquals(6, index.nearest(0, 0, 100).length);
+
+        assertEquals(0, SpatialIndex.distanceKm(10, 20, 10, 20), 1e-9);
+        // One degree of latitude is about 111 km
+        assertEquals(111.2, SpatialIndex.distanceKm(0, 0, 1, 0), 0.1);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.coronavirusapi.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeSeriesCsvParserTests {
+
+    private static TimeSeriesCsvParser.ParsedFile parse(String csv) throws IOException {
+        return TimeSeriesCsvParser.parse(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void parsesQuotedFieldsAndLineEndings() throws IOException {
+        TimeSeriesCsvParser.ParsedFile file = parse("\uFEFF"
+                + "Province/State,Country/Region,Lat,Long,1/22/20,1/23/20\r\n"
+                + ",\"Korea, South\",36,128,1,2\r\n"
+                + "\r\n"
+                + "\"Kitsap, WA\",US,47.6,-122.6,0,\n"
+                + "\"Say \"\"hi\"\"\",X,0,0,3,4");
+
+        assertArrayEquals(new int[]{
+                (int) LocalDate.of(2020, 1, 22).toEpochDay(),
+                (int) LocalDate.of(2020, 1, 23).toEpochDay()
+        }, file.days());
+        assertEquals(3, file.rowCount());
+
+        assertEquals("Korea, South", file.country(0));
+        assertEquals("", file.state(0));
+        assertArrayEquals(new int[]{1, 2}, file.values(0));
+
+        assertEquals(36.0, file.latitude(0));
+        assertEquals(128.0, file.longitude(0));
+
+        assertEquals("Kitsap, WA", file.state(1));
+        assertArrayEquals(new int[]{0, 0}, file.values(1));
+        assertEquals(-122.6, file.longitude(1));
+
+        assertEquals("Say \"hi\"", file.state(2));
+        assertArrayEquals(new int[]{3, 4}, file.values(2));
+    }
+
+    @Test
+    void columnsAreFoundByName() throws IOException {
+        TimeSeriesCsvParser.ParsedFile file = parse(
+                "Country/Region,1/22/20,Province/State\nItaly,7,\n");
+        assertEquals("Italy", file.country(0));
+        assertEquals("", file.state(0));
+        assertArrayEquals(new int[]{7}, file.values(0));
+    }
+
+    @Test
+    void rejectsInvalidNumbers() {
+        assertThrows(IllegalArgumentException.class, () -> parse(
+                "Province/State,Country/Region,1/22/20\n,Italy,x\n"));
+    }
+}
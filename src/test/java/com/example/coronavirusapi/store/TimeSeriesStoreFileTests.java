@@ -0,0 +1,86 @@
+package com.example.coronavirusapi.store;
+
+import com.example.coronavirusapi.CaseType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeSeriesStoreFileTests {
+
+    @Test
+    void roundTrips(@TempDir Path dir) throws IOException {
+        TimeSeriesStore store = new TimeSeriesStore.Builder()
+                .add("Côte d'Ivoire", "", CaseType.CONFIRMED, new int[]{5, 6}, new int[]{1, 2})
+                .add("US", "Washington", CaseType.DEATHS, new int[]{5, 6}, new int[]{3, 4})
+                .locate("US", "Washington", 47.4, -121.5)
+                .build();
+        Path path = dir.resolve("store.tss");
+        TimeSeriesStoreFile.write(store, 42, path);
+
+        TimeSeriesStore read = TimeSeriesStoreFile.read(path, 42);
+        assertNotNull(read);
+        assertEquals(store.seriesCount(), read.seriesCount());
+        assertEquals(store.dayCount(), read.dayCount());
+        for (int s = 0; s < store.seriesCount(); s++) {
+            assertEquals(store.country(s), read.country(s));
+            assertEquals(store.state(s), read.state(s));
+            assertEquals(store.latitude(s), read.latitude(s));
+            assertEquals(store.longitude(s), read.longitude(s));
+            for (CaseType t : CaseType.values()) {
+                assertArrayEquals(store.column(s, t), read.column(s, t));
+            }
+        }
+        assertEquals(0, read.findCountry("côte d'ivoire"));
+
+        // Values are read from the mapped file, not copied to the heap
+        assertTrue(read.values().isDirect());
+        assertEquals(store.cellCount(), read.cellCount());
+        int washington = read.findSeries("US", "Washington");
+        assertEquals(4, read.value(washington, CaseType.DEATHS, 1));
+        assertEquals(1, read.newCases(washington, CaseType.DEATHS, 1, 2));
+    }
+
+    @Test
+    void staleOrCorruptFilesAreIgnored(@TempDir Path dir) throws IOException {
+        TimeSeriesStore store = new TimeSeriesStore.Builder()
+                .add("Italy", "", CaseType.CONFIRMED, new int[]{0}, new int[]{1})
+                .build();
+        Path path = dir.resolve("store.tss");
+        TimeSeriesStoreFile.write(store, 1, path);
+        assertNull(TimeSeriesStoreFile.read(path, 2));
+
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 3));
+        assertNull(TimeSeriesStoreFile.read(path, 1));
+
+        assertNull(TimeSeriesStoreFile.read(dir.resolve("missing.tss"), 1));
+    }
+
+    @Test
+    void corruptCountsAreRejectedBeforeAllocating(@TempDir Path dir) throws IOException {
+        TimeSeriesStore store = new TimeSeriesStore.Builder()
+                .add("Italy", "", CaseType.CONFIRMED, new int[]{0}, new int[]{1})
+                .build();
+        Path path = dir.resolve("store.tss");
+        TimeSeriesStoreFile.write(store, 1, path);
+        byte[] bytes = Files.readAllBytes(path);
+
+        // The country count follows the 16-byte header, and the length
+        // of the first country follows it
+        for (int offset : new int[]{16, 20}) {
+            for (int count : new int[]{Integer.MAX_VALUE, -1}) {
+                ByteBuffer corrupt = ByteBuffer.wrap(bytes.clone());
+                corrupt.putInt(offset, count);
+                Files.write(path, corrupt.array());
+                assertNull(TimeSeriesStoreFile.read(path, 1));
+            }
+        }
+    }
+}
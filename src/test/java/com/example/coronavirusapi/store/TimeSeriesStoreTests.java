@@ -0,0 +1,75 @@
+package com.example.coronavirusapi.store;
+
+import com.example.coronavirusapi.CaseType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeSeriesStoreTests {
+
+    @Test
+    void buildSortsSeriesAndMergesDateAxes() {
+        TimeSeriesStore store = new TimeSeriesStore.Builder()
+                .add("US", "Washington", CaseType.CONFIRMED,
+                        new int[]{10, 11}, new int[]{1, 2})
+                .add("Italy", "", CaseType.CONFIRMED,
+                        new int[]{11, 12}, new int[]{5, 7})
+                .add("Italy", "", CaseType.DEATHS,
+                        new int[]{11, 12}, new int[]{0, 1})
+                .build();
+
+        // Italy/total, US/Washington, US/total, total/total
+        assertEquals(4, store.seriesCount());
+        assertEquals(3, store.dayCount());
+        assertEquals("Italy", store.country(0));
+        assertEquals(TimeSeriesStore.TOTAL, store.state(0));
+        assertEquals("Washington", store.state(1));
+
+        assertArrayEquals(new int[]{0, 5, 7}, store.column(0, CaseType.CONFIRMED));
+        assertArrayEquals(new int[]{1, 2, 0}, store.column(1, CaseType.CONFIRMED));
+        assertFalse(store.has(1, CaseType.DEATHS));
+        assertNull(store.column(0, CaseType.RECOVERED));
+
+        assertEquals(1, store.dayIndex(11));
+        assertTrue(store.dayIndex(13) < 0);
+    }
+
+    @Test
+    void buildRollsUpCountriesAndWorld() {
+        TimeSeriesStore store = new TimeSeriesStore.Builder()
+                .add("France", "", CaseType.CONFIRMED, new int[]{0, 1}, new int[]{10, 20})
+                .add("France", "Reunion", CaseType.CONFIRMED, new int[]{0, 1}, new int[]{1, 2})
+                .add("Italy", "", CaseType.CONFIRMED, new int[]{0, 1}, new int[]{5, 6})
+                .add("Italy", "", CaseType.DEATHS, new int[]{0, 1}, new int[]{0, 1})
+                .build();
+
+        int france = store.findSeries("France", "France");
+        assertArrayEquals(new int[]{10, 20}, store.column(france, CaseType.CONFIRMED));
+
+        int franceTotal = store.findSeries("France", TimeSeriesStore.TOTAL);
+        assertArrayEquals(new int[]{11, 22}, store.column(franceTotal, CaseType.CONFIRMED));
+        assertNull(store.column(franceTotal, CaseType.DEATHS));
+
+        int world = store.findSeries(TimeSeriesStore.TOTAL, TimeSeriesStore.TOTAL);
+        assertArrayEquals(new int[]{16, 28}, store.column(world, CaseType.CONFIRMED));
+        assertArrayEquals(new int[]{0, 1}, store.column(world, CaseType.DEATHS));
+    }
+
+    @Test
+    void lookupsIgnoreCase() {
+        TimeSeriesStore store = new TimeSeriesStore.Builder()
+                .add("US", "Washington", CaseType.CONFIRMED, new int[]{0}, new int[]{1})
+                .add("US", "New York", CaseType.CONFIRMED, new int[]{0}, new int[]{2})
+                .add("China", "Hubei", CaseType.CONFIRMED, new int[]{0}, new int[]{3})
+                .build();
+        QueryEngine engine = new QueryEngine(store);
+
+        // China/Hubei, China/total, US/New York, US/Washington, US/total, total/total
+        assertArrayEquals(new int[]{2, 3, 4}, engine.select("us", QueryEngine.ANY));
+        assertArrayEquals(new int[]{3}, engine.select("US", "WASHINGTON"));
+        assertArrayEquals(new int[]{0}, engine.select(QueryEngine.ANY, "hubei"));
+        assertArrayEquals(new int[]{1, 4, 5}, engine.select(QueryEngine.ANY, "Total"));
+        assertEquals(6, engine.select(QueryEngine.ANY, QueryEngine.ANY).length);
+        assertEquals(0, engine.select("Italy", QueryEngine.ANY).length);
+    }
+}